@@ -0,0 +1,155 @@
+package com.bookatop.property.reg.cache;
+
+import com.bookatop.property.reg.datasource.ReplicaPool;
+import com.bookatop.property.reg.transactions.TransactionCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Bounded cache of the property query pages (property ids) by the normalized cc names, category type,
+    language and page. The query traffic is skewed to a few addresses, a hit skips the name resolution
+    and the filtering, only the page properties are read by primary key.
+
+    Unknown addresses (typos) are cached shortly, so they do not resolve the names on every request and
+    a catalog update is seen soon. An edit evicts the pages of the old and the new address of the property
+    after the commit, pages of other addresses are kept. The keys are indexed by the country, so an eviction
+    checks the pages of the edited country only.
+
+    A page read before an eviction may be put after it, so the put is checked against the eviction count
+    taken before the read. The eviction is local, other instances see a deactivated property dropped from
+    the page since the cached ids are read with the active filter, other edits are seen after the expiry
+ */
+
+@Component
+public class PropertyQueryCache {
+
+    private static final String CACHE_NAME = "propertyQueries";
+
+    private final Cache<PropertyQueryKey, PropertyQueryResult> propertyQueries;
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /* Country id -> keys of the cached pages of the country, the keys of expired pages are removed */
+    private final Map<Long, Set<PropertyQueryKey>> countryKeys = new ConcurrentHashMap<>();
+
+    private final ReplicaPool replicaPool;
+
+    public PropertyQueryCache(@Value("${property.query.cache.max.size}") long maxSize,
+                              @Value("${property.query.cache.expire.minutes}") long expireMinutes,
+                              @Value("${property.query.cache.unknown.expire.seconds}") long unknownExpireSeconds,
+                              ReplicaPool replicaPool,
+                              MeterRegistry meterRegistry) {
+        this.replicaPool = replicaPool;
+
+        long expireNanos = Duration.ofMinutes(expireMinutes).toNanos();
+        long unknownExpireNanos = Duration.ofSeconds(unknownExpireSeconds).toNanos();
+
+        propertyQueries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<PropertyQueryKey, PropertyQueryResult>() {
+                    @Override
+                    public long expireAfterCreate(PropertyQueryKey key, PropertyQueryResult result, long currentTime) {
+                        return result.isUnknownAddress() ? unknownExpireNanos : expireNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(PropertyQueryKey key, PropertyQueryResult result, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, result, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(PropertyQueryKey key, PropertyQueryResult result, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .evictionListener((PropertyQueryKey key, PropertyQueryResult result, RemovalCause cause) ->
+                        unindexKey(key, result))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, propertyQueries, CACHE_NAME);
+    }
+
+    /* Null when the page is not cached */
+    public PropertyQueryResult getQueryResult(PropertyQueryKey key) {
+        return propertyQueries.getIfPresent(key);
+    }
+
+    /* Taken before the page is read, see putQueryResult */
+    public long getEvictionStamp() {
+        return evictionCount.get();
+    }
+
+    /*
+        The page is removed again when an eviction started after the stamp was taken, the eviction
+        could have run before the put. An eviction after the check sees the put page
+     */
+    public void putQueryResult(PropertyQueryKey key, PropertyQueryResult result, long evictionStamp) {
+        propertyQueries.put(key, result);
+
+        if (!result.isUnknownAddress())
+            countryKeys.computeIfAbsent(result.getCountryId(), countryId -> ConcurrentHashMap.newKeySet()).add(key);
+
+        if (evictionCount.get() != evictionStamp)
+            propertyQueries.asMap().remove(key, result);
+    }
+
+    public void evictAddress(Long countryId, Long cityId) {
+        if (Objects.isNull(countryId))
+            return;
+
+        Runnable eviction = () -> {
+            evictionCount.incrementAndGet();
+
+            Set<PropertyQueryKey> keys = countryKeys.get(countryId);
+
+            if (Objects.isNull(keys))
+                return;
+
+            /* a key is kept while its page is cached for the country, a page replaced meanwhile is not removed */
+            keys.removeIf(key -> {
+                PropertyQueryResult result = propertyQueries.asMap().get(key);
+
+                if (Objects.nonNull(result) && result.isAffectedBy(countryId, cityId)
+                        && propertyQueries.asMap().remove(key, result))
+                    return true;
+
+                return Objects.isNull(result) || !countryId.equals(result.getCountryId());
+            });
+        };
+
+        /* evicted again after the replica lag, a page read from the replica meanwhile may be stale */
+        TransactionCommit.afterCommit(() -> {
+            eviction.run();
+            replicaPool.afterReplicaLag(eviction);
+        });
+    }
+
+    public void evictAll() {
+        evictionCount.incrementAndGet();
+        propertyQueries.invalidateAll();
+        countryKeys.clear();
+    }
+
+    private void unindexKey(PropertyQueryKey key, PropertyQueryResult result) {
+        Set<PropertyQueryKey> keys = result.isUnknownAddress() ? null : countryKeys.get(result.getCountryId());
+
+        if (Objects.nonNull(keys))
+            keys.remove(key);
+    }
+}
@@ -0,0 +1,38 @@
+package com.bookatop.property.reg.cache;
+
+import com.bookatop.catalog.book.api.enums.CategoryTypes;
+import com.bookatop.property.reg.lookups.NameLookup;
+import lombok.EqualsAndHashCode;
+
+/*
+    The key of a property query page: cc names are normalized as they are resolved (case, accents,
+    punctuation), so "Minsk" and " MINSK." share the cached result
+ */
+
+@EqualsAndHashCode
+public class PropertyQueryKey {
+
+    private final String countryName;
+
+    private final String cityName;
+
+    private final CategoryTypes pCatType;
+
+    private final String lang;
+
+    private final long afterId;
+
+    private final int pageSize;
+
+    public PropertyQueryKey(String cc, CategoryTypes pCatType, String lang, long afterId, int pageSize) {
+        // "\\,", -1 means to include an empty string to the array result
+        String[] ccNames = cc.split("\\,", -1);
+
+        this.countryName = NameLookup.normalizeName(ccNames[0]);
+        this.cityName = ccNames.length > 1 ? NameLookup.normalizeName(ccNames[1]) : null;
+        this.pCatType = pCatType;
+        this.lang = lang;
+        this.afterId = afterId;
+        this.pageSize = pageSize;
+    }
+}
@@ -0,0 +1,47 @@
+package com.bookatop.property.reg.cache;
+
+import lombok.Getter;
+
+import java.util.Objects;
+
+/*
+    The cached ids of a property query page, the next page cursor and the address they are found for.
+    The cursor is of the found page, a cached page which is read shorter (a deactivated property) keeps it.
+    An unknown address (a cc name which resolves to nothing) has no country id
+ */
+
+@Getter
+public class PropertyQueryResult {
+
+    private static final PropertyQueryResult UNKNOWN_ADDRESS = new PropertyQueryResult(null, null, new long[0], null);
+
+    private final Long countryId;
+
+    private final Long cityId;
+
+    private final long[] propIds;
+
+    private final String nextCursor;
+
+    public PropertyQueryResult(Long countryId, Long cityId, long[] propIds, String nextCursor) {
+        this.countryId = countryId;
+        this.cityId = cityId;
+        this.propIds = propIds;
+        this.nextCursor = nextCursor;
+    }
+
+    public static PropertyQueryResult unknownAddress() {
+        return UNKNOWN_ADDRESS;
+    }
+
+    public boolean isUnknownAddress() {
+        return Objects.isNull(countryId);
+    }
+
+    /* A country page is changed by an edit of any city of the country */
+    boolean isAffectedBy(Long editCountryId, Long editCityId) {
+        return !isUnknownAddress()
+                && countryId.equals(editCountryId)
+                && (Objects.isNull(cityId) || cityId.equals(editCityId));
+    }
+}
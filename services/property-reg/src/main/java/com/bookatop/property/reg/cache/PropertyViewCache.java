@@ -0,0 +1,134 @@
+package com.bookatop.property.reg.cache;
+
+import com.bookatop.property.reg.api.model.PropertyView;
+import com.bookatop.property.reg.repository.PropertyVersion;
+import com.bookatop.property.reg.datasource.ReplicaPool;
+import com.bookatop.property.reg.transactions.TransactionCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+    Bounded cache of rendered property views (property JSON bound to HotelProperty with the catalog lookups)
+    by property id, an entry holds the views of the rendered languages. Views are cached as objects, not as
+    serialized bytes, because the view serialization depends on the access roles of the caller (sensitive data).
+
+    A property is evicted (all languages) after an edit is committed by a single invalidation of its entry,
+    the expiration limits the age of the catalog lookups (country, city and room names).
+
+    Property versions are cached and evicted together with the views, so a conditional request of a
+    cached property reads nothing from the database
+ */
+
+@Component
+public class PropertyViewCache {
+
+    private static final String CACHE_NAME = "propertyViews";
+
+    private static final String VERSIONS_CACHE_NAME = "propertyVersions";
+
+    /* The default language (null lang), the catalog reads an empty lang as the default language too */
+    private static final String DEFAULT_LANG_KEY = "";
+
+    /* Property id -> language -> view */
+    private final Cache<Long, Map<String, PropertyView>> propertyViews;
+
+    private final Cache<Long, PropertyVersion> propertyVersions;
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private final ReplicaPool replicaPool;
+
+    public PropertyViewCache(@Value("${property.view.cache.max.size}") long maxSize,
+                             @Value("${property.view.cache.expire.minutes}") long expireMinutes,
+                             ReplicaPool replicaPool,
+                             MeterRegistry meterRegistry) {
+        this.replicaPool = replicaPool;
+
+        propertyViews = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(expireMinutes))
+                .recordStats()
+                .build();
+
+        propertyVersions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(expireMinutes))
+                .recordStats()
+                .build();
+
+        /* cache.gets (hit/miss of a property), cache.evictions, cache.size etc. with cache=propertyViews tag */
+        CaffeineCacheMetrics.monitor(meterRegistry, propertyViews, CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, propertyVersions, VERSIONS_CACHE_NAME);
+    }
+
+    /* Taken before the properties of a view list are read, see getPropertyView */
+    public long getEvictionStamp() {
+        return evictionCount.get();
+    }
+
+    /* The render reads the property, so the stamp is taken before it */
+    public PropertyView getPropertyView(long propId, String lang, Supplier<PropertyView> render) {
+        return getPropertyView(propId, lang, getEvictionStamp(), render);
+    }
+
+    /*
+        The view is rendered out of the cache locks (the catalog lookups are remote calls), a view which
+        is failed to render is not cached. The property is removed again when an eviction started after
+        the stamp was taken, the view could be rendered from the property read before the edit
+     */
+    public PropertyView getPropertyView(long propId, String lang, long evictionStamp, Supplier<PropertyView> render) {
+        String langKey = Objects.requireNonNullElse(lang, DEFAULT_LANG_KEY);
+        Map<String, PropertyView> langViews = propertyViews.getIfPresent(propId);
+        PropertyView propView = Objects.isNull(langViews) ? null : langViews.get(langKey);
+
+        if (Objects.nonNull(propView))
+            return propView;
+
+        propView = render.get();
+
+        PropertyView cachedView = propertyViews.asMap()
+                .computeIfAbsent(propId, key -> new ConcurrentHashMap<>())
+                .putIfAbsent(langKey, propView);
+
+        if (evictionCount.get() != evictionStamp)
+            propertyViews.invalidate(propId);
+
+        return Objects.isNull(cachedView) ? propView : cachedView;
+    }
+
+    /* An absent (or inactive) property is not cached */
+    public PropertyVersion getPropertyVersion(long propId, Supplier<PropertyVersion> read) {
+        return propertyVersions.get(propId, key -> read.get());
+    }
+
+    /* Evicted again after the replica lag, a view read from the replica meanwhile may be stale */
+    public void evictProperty(long propId) {
+        Runnable eviction = () -> {
+            evictionCount.incrementAndGet();
+            propertyVersions.invalidate(propId);
+            propertyViews.invalidate(propId);
+        };
+
+        TransactionCommit.afterCommit(() -> {
+            eviction.run();
+            replicaPool.afterReplicaLag(eviction);
+        });
+    }
+
+    public void evictAll() {
+        evictionCount.incrementAndGet();
+        propertyVersions.invalidateAll();
+        propertyViews.invalidateAll();
+    }
+}
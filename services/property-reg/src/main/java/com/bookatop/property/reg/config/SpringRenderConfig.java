@@ -0,0 +1,63 @@
+package com.bookatop.property.reg.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/*
+    Bounded executor of list rendering. A full pool and queue makes the request thread render
+    by itself instead of queueing more work
+ */
+
+@Configuration
+public class SpringRenderConfig {
+
+    public static final String PROPERTY_RENDER_EXECUTOR = "propertyRenderExecutor";
+
+    private static final String THREAD_NAME_PREFIX = "property-render-";
+
+    @Value("${property.render.pool.size}")
+    private int poolSize;
+
+    @Value("${property.render.queue.capacity}")
+    private int queueCapacity;
+
+    /* Request scoped beans (catalog client with the caller's headers) are resolved by the request attributes */
+    private static TaskDecorator requestContextDecorator() {
+        return task -> {
+            RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+
+            return () -> {
+                RequestAttributes workerAttributes = RequestContextHolder.getRequestAttributes();
+                RequestContextHolder.setRequestAttributes(requestAttributes);
+                try {
+                    task.run();
+                } finally {
+                    if (Objects.isNull(workerAttributes))
+                        RequestContextHolder.resetRequestAttributes();
+                    else
+                        RequestContextHolder.setRequestAttributes(workerAttributes);
+                }
+            };
+        };
+    }
+
+    @Bean(name = PROPERTY_RENDER_EXECUTOR)
+    public ThreadPoolTaskExecutor propertyRenderExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+        executor.setTaskDecorator(requestContextDecorator());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
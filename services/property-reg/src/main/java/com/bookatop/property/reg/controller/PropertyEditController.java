@@ -1,20 +1,28 @@
 package com.bookatop.property.reg.controller;
 
 
+import com.bookatop.property.reg.model.PropertyActiveResult;
 import com.bookatop.property.reg.model.PropertyEditItem;
+import com.bookatop.property.reg.model.PropertyEditView;
 import com.bookatop.property.reg.model.PropertyResponse;
 import com.bookatop.property.reg.model.PropertyUpdate;
 import com.bookatop.property.reg.service.PropertyEditService;
+import com.bookatop.property.reg.validators.EditValidator;
+import com.bookatop.property.reg.validators.ViewVersions;
 import com.bookatop.security.annotation.AccessUserRoles;
 import com.bookatop.security.enums.UserRoles;
 import com.bookatop.security.providers.HttpShareSensitiveProvider;
 import com.bookatop.security.request.GatewayHeaders;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping(value = "property-reg/edit", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -26,35 +34,102 @@ public class PropertyEditController {
 
     public static final String PROPERTY_UPDATED = "Property is updated";
 
+    public static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
+    public static final String JSON_PATCH_JSON_VALUE = "application/json-patch+json";
+
+    private static final String ANY_ETAG = "*";
+
     private final PropertyEditService propertyEditService;
 
     public PropertyEditController(PropertyEditService propertyEditService) {
         this.propertyEditService = propertyEditService;
     }
 
+    /* Strong ETag of an edited property, it is changed by every edit of the property */
+    private static String makeEditTag(long propId, long version) {
+        return "\"" + ViewVersions.propertyTag(propId, version) + "\"";
+    }
+
+    /*
+        The edit is made when If-Match has the ETag of the stored version (or *), an edit without If-Match
+        is not conditional. Weak ETags never match
+     */
+    private static EditValidator makeEditValidator(String ifMatch) {
+        if (Objects.isNull(ifMatch))
+            return EditValidator.NONE;
+
+        List<String> eTags = Arrays.stream(ifMatch.split(",")).map(String::trim).toList();
+
+        return versionTag -> eTags.contains(ANY_ETAG) || eTags.contains("\"" + versionTag + "\"");
+    }
+
+    private static ResponseEntity<PropertyResponse> makeEditResponse(long propId, long version, String message) {
+        return ResponseEntity.ok().eTag(makeEditTag(propId, version)).body(new PropertyResponse(message));
+    }
+
     @PostMapping("/{propId}/activate")
     @AccessUserRoles(UserRoles.USER)
     public ResponseEntity<PropertyResponse> activateProperty(@RequestHeader(GatewayHeaders.UID) Long userId,
-                                                             @PathVariable Long propId) {
-        propertyEditService.activeProperty(userId, propId, true);
-        return ResponseEntity.ok(new PropertyResponse(PROPERTY_ACTIVATED));
+                                                             @PathVariable Long propId,
+                                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long version = propertyEditService.activeProperty(userId, propId, true, makeEditValidator(ifMatch));
+        return makeEditResponse(propId, version, PROPERTY_ACTIVATED);
     }
 
     @PostMapping("/{propId}/deactivate")
     @AccessUserRoles(UserRoles.USER)
     public ResponseEntity<PropertyResponse> deactivateProperty(@RequestHeader(GatewayHeaders.UID) Long userId,
-                                                               @PathVariable Long propId) {
-        propertyEditService.activeProperty(userId, propId, false);
-        return ResponseEntity.ok(new PropertyResponse(PROPERTY_DEACTIVATED));
+                                                               @PathVariable Long propId,
+                                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long version = propertyEditService.activeProperty(userId, propId, false, makeEditValidator(ifMatch));
+        return makeEditResponse(propId, version, PROPERTY_DEACTIVATED);
+    }
+
+    /* The body is a list of property ids, the result of every property is returned */
+    @PostMapping("/activate")
+    @AccessUserRoles(UserRoles.USER)
+    public ResponseEntity<List<PropertyActiveResult>> activateProperties(@RequestHeader(GatewayHeaders.UID) Long userId,
+                                                                         @RequestBody List<Long> propIds) {
+        return ResponseEntity.ok(propertyEditService.activeProperties(userId, propIds, true));
+    }
+
+    @PostMapping("/deactivate")
+    @AccessUserRoles(UserRoles.USER)
+    public ResponseEntity<List<PropertyActiveResult>> deactivateProperties(@RequestHeader(GatewayHeaders.UID) Long userId,
+                                                                           @RequestBody List<Long> propIds) {
+        return ResponseEntity.ok(propertyEditService.activeProperties(userId, propIds, false));
     }
 
     @PostMapping("/{propId}/update")
     @AccessUserRoles(UserRoles.USER)
     public ResponseEntity<PropertyResponse> updateProperty(@RequestHeader(GatewayHeaders.UID) Long userId,
                                                            @PathVariable Long propId,
-                                                           @Valid @RequestBody PropertyUpdate propUpdate) {
-        propertyEditService.updateProperty(userId, propId, propUpdate);
-        return ResponseEntity.ok(new PropertyResponse(PROPERTY_UPDATED));
+                                                           @Valid @RequestBody PropertyUpdate propUpdate,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long version = propertyEditService.updateProperty(userId, propId, propUpdate, makeEditValidator(ifMatch));
+        return makeEditResponse(propId, version, PROPERTY_UPDATED);
+    }
+
+    /* The patch content type selects the patch format, the stored JSON is patched instead of being resent */
+    @PatchMapping(value = "/{propId}", consumes = MERGE_PATCH_JSON_VALUE)
+    @AccessUserRoles(UserRoles.USER)
+    public ResponseEntity<PropertyResponse> mergePatchProperty(@RequestHeader(GatewayHeaders.UID) Long userId,
+                                                               @PathVariable Long propId,
+                                                               @RequestBody JsonNode patch,
+                                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long version = propertyEditService.patchProperty(userId, propId, patch, false, makeEditValidator(ifMatch));
+        return makeEditResponse(propId, version, PROPERTY_UPDATED);
+    }
+
+    @PatchMapping(value = "/{propId}", consumes = JSON_PATCH_JSON_VALUE)
+    @AccessUserRoles(UserRoles.USER)
+    public ResponseEntity<PropertyResponse> jsonPatchProperty(@RequestHeader(GatewayHeaders.UID) Long userId,
+                                                              @PathVariable Long propId,
+                                                              @RequestBody JsonNode patch,
+                                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long version = propertyEditService.patchProperty(userId, propId, patch, true, makeEditValidator(ifMatch));
+        return makeEditResponse(propId, version, PROPERTY_UPDATED);
     }
 
     @GetMapping("/list")
@@ -69,6 +144,14 @@ public class PropertyEditController {
     public ResponseEntity<HttpShareSensitiveProvider> getEditProperty(@RequestHeader(GatewayHeaders.UID) Long userId,
                                                                       @PathVariable Long propId,
                                                                       @RequestParam(required = false) String lang) {
-        return ResponseEntity.ok(new HttpShareSensitiveProvider(propertyEditService.getEditProperty(userId, propId, lang)));
+        PropertyEditView propEditView = propertyEditService.getEditProperty(userId, propId, lang);
+
+        /* the ETag is sent back in If-Match of the next edit */
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        if (Objects.nonNull(propEditView.getVersion()))
+            response.eTag(makeEditTag(propId, propEditView.getVersion()));
+
+        return response.body(new HttpShareSensitiveProvider(propEditView));
     }
 }
@@ -2,42 +2,132 @@ package com.bookatop.property.reg.controller;
 
 import com.bookatop.catalog.book.api.enums.CategoryTypes;
 import com.bookatop.property.reg.api.model.PropertyView;
+import com.bookatop.property.reg.model.PropertyFacets;
+import com.bookatop.property.reg.model.PropertyViewPage;
 import com.bookatop.property.reg.service.PropertyViewService;
+import com.bookatop.property.reg.validators.ViewValidator;
 import com.bookatop.security.annotation.AccessUserRoles;
+import com.bookatop.security.request.GatewayHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 
 @RestController
 @RequestMapping(value = "property-reg/view", produces = MediaType.APPLICATION_JSON_VALUE)
 public class PropertyViewController {
 
+    /* The cursor of the next page, it is absent on the last page */
+    public static final String NEXT_CURSOR = "Next-Cursor";
+
     private final PropertyViewService propertyViewService;
 
     public PropertyViewController(PropertyViewService propertyViewService) {
         this.propertyViewService = propertyViewService;
     }
 
-    @GetMapping("/list")
+    private static ResponseEntity<List<PropertyView>> makePageResponse(PropertyViewPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        if (Objects.nonNull(page.getNextCursor()))
+            response.header(NEXT_CURSOR, page.getNextCursor());
+
+        return response.body(page.getProperties());
+    }
+
+    /* No page means 304 Not Modified, the status and the validators are already set by the web request */
+    private static ResponseEntity<List<PropertyView>> makePageResponse(Optional<PropertyViewPage> page) {
+        return page.map(PropertyViewController::makePageResponse).orElse(null);
+    }
+
+    /*
+        Strong ETag of the views in the language for the caller roles (sensitive data are serialized by
+        the roles), ETag and Last-Modified headers are added to the response by the check
+     */
+    private static ViewValidator makeViewValidator(WebRequest webRequest, String lang) {
+        String roles = webRequest.getHeader(GatewayHeaders.ROLES);
+
+        return (versionTag, lastModified) -> webRequest.checkNotModified(
+                "\"" + DigestUtils.md5DigestAsHex((versionTag + "|" + lang + "|" + roles)
+                        .getBytes(StandardCharsets.UTF_8)) + "\"",
+                lastModified);
+    }
+
+    @GetMapping(value = "/list", params = {"!cc"})
+    @AccessUserRoles(permitAll = true)
+    public ResponseEntity<List<PropertyView>> getViewProperties(@RequestParam(required = false) String lang,
+                                                                @RequestParam(required = false) String after,
+                                                                @RequestParam(required = false) Integer limit,
+                                                                WebRequest webRequest) {
+        return makePageResponse(propertyViewService.getViewProperties(lang, after, limit,
+                makeViewValidator(webRequest, lang)));
+    }
+
+    /* Full listing for consumers like hotel-radar, properties are written while they are read */
+    @GetMapping(value = "/list", params = {"!cc"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
     @AccessUserRoles(permitAll = true)
-    public ResponseEntity<List<PropertyView>> getViewProperties(@RequestParam(required = false) String lang) {
-        return ResponseEntity.ok(propertyViewService.getViewProperties(lang));
+    public void streamViewProperties(@RequestParam(required = false) String lang,
+                                     HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        propertyViewService.streamViewProperties(lang, response.getOutputStream());
     }
 
     @GetMapping("/list/{propId}")
     @AccessUserRoles(permitAll = true)
     public ResponseEntity<PropertyView> getViewProperty(@PathVariable Long propId,
-                                                        @RequestParam(required = false) String lang) {
-        return ResponseEntity.ok(propertyViewService.getViewProperty(propId, lang));
+                                                        @RequestParam(required = false) String lang,
+                                                        WebRequest webRequest) {
+        return propertyViewService.getViewProperty(propId, lang, makeViewValidator(webRequest, lang))
+                .map(ResponseEntity::ok)
+                .orElse(null);
     }
 
     @GetMapping(value = "/list", params = {"cc"})
     @AccessUserRoles(permitAll = true)
     public ResponseEntity<List<PropertyView>> queryViewProperties(@RequestParam(required = false) String lang,
                                                                   @RequestParam String cc,
-                                                                  @RequestParam(name = "pcat_type", required = false) CategoryTypes pCatType) {
-        return ResponseEntity.ok(propertyViewService.queryViewProperties(lang, cc, pCatType));
+                                                                  @RequestParam(name = "pcat_type", required = false) CategoryTypes pCatType,
+                                                                  @RequestParam(required = false) String after,
+                                                                  @RequestParam(required = false) Integer limit,
+                                                                  WebRequest webRequest) {
+        return makePageResponse(propertyViewService.queryViewProperties(lang, cc, pCatType, after, limit,
+                makeViewValidator(webRequest, lang)));
+    }
+
+    @GetMapping("/search")
+    @AccessUserRoles(permitAll = true)
+    public ResponseEntity<List<PropertyView>> searchViewProperties(@RequestParam(required = false) String lang,
+                                                                   @RequestParam String q,
+                                                                   @RequestParam(required = false) String cc,
+                                                                   @RequestParam(name = "pcat_type", required = false) CategoryTypes pCatType,
+                                                                   @RequestParam(required = false) String after,
+                                                                   @RequestParam(required = false) Integer limit,
+                                                                   WebRequest webRequest) {
+        return makePageResponse(propertyViewService.searchViewProperties(lang, q, cc, pCatType, after, limit,
+                makeViewValidator(webRequest, lang)));
+    }
+
+    /* cc values for the address autocomplete */
+    @GetMapping("/suggest")
+    @AccessUserRoles(permitAll = true)
+    public ResponseEntity<List<String>> suggestAddresses(@RequestParam String prefix,
+                                                         @RequestParam(required = false) String lang) {
+        return ResponseEntity.ok(propertyViewService.suggestAddresses(prefix, lang));
+    }
+
+    /* Numbers of active properties per country, per city of the cc country and per category type */
+    @GetMapping("/facets")
+    @AccessUserRoles(permitAll = true)
+    public ResponseEntity<PropertyFacets> getViewFacets(@RequestParam(required = false) String lang,
+                                                        @RequestParam(required = false) String cc) {
+        return ResponseEntity.ok(propertyViewService.getViewFacets(lang, cc));
     }
 }
@@ -0,0 +1,129 @@
+package com.bookatop.property.reg.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Connection pool of the read-only database replica. No replica is configured when the url is empty,
+    then all the reads go to the primary database.
+
+    The replica lag is checked periodically, the replica is available for reads only while its lag is
+    known and not greater than property.replica.lag.max.seconds. Caches which are evicted after an edit
+    are evicted once more after the maximum lag, so a view read from the replica before it has replayed
+    the edit is not kept for the whole cache expiration
+ */
+
+@Component
+public class ReplicaPool implements MeterBinder {
+
+    private static final String POOL_NAME = "replica";
+
+    private static final long UNKNOWN_LAG = -1;
+
+    private final Logger logger = LoggerFactory.getLogger(ReplicaPool.class);
+
+    private final HikariDataSource dataSource;
+
+    private final JdbcTemplate lagTemplate;
+
+    private final String lagQuery;
+
+    private final long maxLagMillis;
+
+    private volatile long lagMillis = UNKNOWN_LAG;
+
+    public ReplicaPool(@Value("${property.replica.datasource.url}") String url,
+                       @Value("${property.replica.datasource.username}") String username,
+                       @Value("${property.replica.datasource.password}") String password,
+                       @Value("${property.replica.pool.size}") int poolSize,
+                       @Value("${property.replica.lag.query}") String lagQuery,
+                       @Value("${property.replica.lag.max.seconds}") long maxLagSeconds) {
+        this.lagQuery = lagQuery;
+        this.maxLagMillis = TimeUnit.SECONDS.toMillis(maxLagSeconds);
+
+        if (Objects.isNull(url) || url.isBlank()) {
+            dataSource = null;
+            lagTemplate = null;
+            return;
+        }
+
+        dataSource = new HikariDataSource();
+        dataSource.setPoolName(POOL_NAME);
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setReadOnly(true);
+
+        lagTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /* The registry is bound after the data source is created, the registry metrics depend on the data sources */
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        if (!isConfigured())
+            return;
+
+        TimeGauge.builder("property.replica.lag", this, TimeUnit.MILLISECONDS,
+                        p -> p.lagMillis == UNKNOWN_LAG ? Double.NaN : p.lagMillis)
+                .description("Replay lag of the read-only replica, NaN when the replica is not reachable")
+                .register(meterRegistry);
+    }
+
+    public boolean isConfigured() {
+        return Objects.nonNull(dataSource);
+    }
+
+    public boolean isAvailable() {
+        long lag = lagMillis;
+        return isConfigured() && lag != UNKNOWN_LAG && lag <= maxLagMillis;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /* A failed check makes the replica unavailable till the next successful one */
+    @Scheduled(fixedDelayString = "PT${property.replica.lag.check.seconds}S")
+    public void checkLag() {
+        if (!isConfigured())
+            return;
+
+        try {
+            Double lagSeconds = lagTemplate.queryForObject(lagQuery, Double.class);
+
+            lagMillis = Objects.isNull(lagSeconds) ? 0 : Math.max(0, Math.round(lagSeconds * 1000));
+        } catch (RuntimeException e) {
+            if (lagMillis != UNKNOWN_LAG)
+                logger.warn("Replica lag check failed, reads are routed to the primary: {}", e.getMessage());
+
+            lagMillis = UNKNOWN_LAG;
+        }
+    }
+
+    /* Runs the action once more after the maximum lag, without a replica there is nothing to wait for */
+    public void afterReplicaLag(Runnable action) {
+        if (isConfigured())
+            CompletableFuture.delayedExecutor(maxLagMillis, TimeUnit.MILLISECONDS).execute(action);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (isConfigured())
+            dataSource.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.bookatop.property.reg.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    Read-only transactions are routed to the replica while it is available, everything else
+    (writes, reads out of a transaction, migrations) goes to the primary.
+
+    The routing data source has to be wrapped by LazyConnectionDataSourceProxy: the transaction manager
+    asks for a connection before the transaction is marked read-only, the lazy proxy takes the real
+    connection on the first statement
+ */
+
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY_KEY = "primary";
+
+    private static final String REPLICA_KEY = "replica";
+
+    private final ReplicaPool replicaPool;
+
+    public ReplicaRoutingDataSource(DataSource primaryDataSource, ReplicaPool replicaPool) {
+        this.replicaPool = replicaPool;
+
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(PRIMARY_KEY, primaryDataSource);
+
+        if (replicaPool.isConfigured())
+            targetDataSources.put(REPLICA_KEY, replicaPool.getDataSource());
+
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primaryDataSource);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaPool.isAvailable()
+                ? REPLICA_KEY
+                : PRIMARY_KEY;
+    }
+}
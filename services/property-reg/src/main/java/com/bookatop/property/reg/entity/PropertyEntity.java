@@ -3,7 +3,9 @@ package com.bookatop.property.reg.entity;
 import com.bookatop.property.reg.api.enums.PropertyJsonType;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnTransformer;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.*;
 import java.sql.Timestamp;
@@ -19,9 +21,15 @@ public class PropertyEntity {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    /* jsonb column is read as text, the text is cast to jsonb on write */
     @Column(name = "property_json", nullable = false)
+    @ColumnTransformer(write = "?::jsonb")
     private String propertyJson;
 
+    /* Hash of the canonical property_json, an update of the same content is skipped */
+    @Column(name = "property_json_hash")
+    private String propertyJsonHash;
+
     @Column(name = "property_json_type", nullable = false)
     private PropertyJsonType propertyJsonType;
 
@@ -29,13 +37,35 @@ public class PropertyEntity {
     @CreationTimestamp
     private Timestamp createdDate;
 
+    /* Set on insert and on every update */
     @Column(name = "modified_date", nullable = false)
-    @CreationTimestamp
+    @UpdateTimestamp
     private Timestamp modifiedDate;
 
+    /*
+        Incremented by every edit on flush, an edit of a changed version fails (optimistic locking).
+        It is a validator of the property views and the ETag of the edits
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version = 0L;
+
     @Column(name = "is_active", nullable = false)
     private Boolean isActive;
 
+    @Column(name = "country_id")
+    private Long countryId;
+
+    @Column(name = "city_id")
+    private Long cityId;
+
+    /* Summary columns of the lists, copied from property_json on every write */
+    @Column(name = "property_name")
+    private String propertyName;
+
+    @Column(name = "image_url")
+    private String imageUrl;
+
     @OneToOne(mappedBy = "propertyEntity")
     private UserPropertyEntity userPropertyEntity;
 
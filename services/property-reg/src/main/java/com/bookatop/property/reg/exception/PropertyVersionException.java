@@ -0,0 +1,13 @@
+package com.bookatop.property.reg.exception;
+
+import java.io.Serial;
+
+public class PropertyVersionException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 7301524886032917564L;
+
+    public PropertyVersionException(String message) {
+        super(message);
+    }
+}
@@ -2,10 +2,12 @@ package com.bookatop.property.reg.handler;
 
 import com.bookatop.property.reg.exception.ImageStorageServiceException;
 import com.bookatop.property.reg.exception.PropertyRegException;
+import com.bookatop.property.reg.exception.PropertyVersionException;
 import com.bookatop.property.reg.model.ErrorResponse;
 import org.postgresql.util.PSQLException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -26,6 +28,14 @@ public class GlobalPropertyRegExceptionHandler {
         return new ErrorResponse(HttpStatus.METHOD_NOT_ALLOWED.value(), ex.getMessage());
     }
 
+    /* The property is changed by another edit since the client has read it */
+    @ExceptionHandler(value = {PropertyVersionException.class, OptimisticLockingFailureException.class})
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public @ResponseBody ErrorResponse handlePropertyVersionException(Exception ex) {
+        logger.warn(ex.getMessage());
+        return new ErrorResponse(HttpStatus.PRECONDITION_FAILED.value(), ex.getMessage());
+    }
+
     @ExceptionHandler(value = ImageStorageServiceException.class)
     @ResponseStatus(HttpStatus.BAD_GATEWAY)
     public ErrorResponse handleImageStorageServiceException(Exception ex) {
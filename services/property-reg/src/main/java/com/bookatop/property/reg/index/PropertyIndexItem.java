@@ -0,0 +1,26 @@
+package com.bookatop.property.reg.index;
+
+import lombok.Getter;
+
+/*
+    The class describes the search keys of an active property which are kept in the property search index
+ */
+
+@Getter
+public class PropertyIndexItem {
+
+    private final Long propertyId;
+
+    private final Long countryId;
+
+    private final Long cityId;
+
+    private final Long refPropCatId;
+
+    public PropertyIndexItem(Long propertyId, Long countryId, Long cityId, Long refPropCatId) {
+        this.propertyId = propertyId;
+        this.countryId = countryId;
+        this.cityId = cityId;
+        this.refPropCatId = refPropCatId;
+    }
+}
@@ -0,0 +1,373 @@
+package com.bookatop.property.reg.index;
+
+import com.bookatop.property.reg.repository.PropertyRegRepository;
+import com.bookatop.property.reg.transactions.TransactionCommit;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+    In-memory inverted index of active properties: country id, city id and category id are mapped
+    to the ascending arrays of property ids. Arrays are never changed after publishing, an update
+    replaces the array of a key (updates are rare comparing to the reads), so readers need no locking.
+
+    The index is built when the application is ready, till then isReady() is false and the callers
+    have to query the database.
+
+    The index also counts active properties per country, per city of a country and per category.
+    The counts are changed together with the id arrays, so the facets are never recomputed from the properties.
+
+    The edits of this instance update the index after the commit. The service runs as several instances,
+    the edits of other instances are seen when the index is rebuilt (every property.search.index.rebuild.minutes),
+    till then a property deactivated by another instance is dropped by the active filter of the page read.
+    A build fills new maps and publishes them when it is done, readers see the previous index till then
+ */
+
+@Component
+public class PropertySearchIndex {
+
+    private static final long[] NO_IDS = new long[0];
+
+    private static final int BUILD_IDS_CAPACITY = 16;
+
+    private final Logger logger = LoggerFactory.getLogger(PropertySearchIndex.class);
+
+    private final PropertyRegRepository propertyRegRepository;
+
+    private final Object buildLock = new Object();
+
+    private volatile IndexData indexData = new IndexData();
+
+    /* Property id -> item committed while the index is being built (null item is removed), null out of a build */
+    private Map<Long, PropertyIndexItem> buildUpdates;
+
+    private volatile boolean ready;
+
+    private volatile long buildTimeMillis;
+
+    public PropertySearchIndex(PropertyRegRepository propertyRegRepository, MeterRegistry meterRegistry) {
+        this.propertyRegRepository = propertyRegRepository;
+
+        Gauge.builder("property.search.index.size", this, PropertySearchIndex::size)
+                .description("Number of active properties in the search index")
+                .register(meterRegistry);
+
+        TimeGauge.builder("property.search.index.build.time", this, TimeUnit.MILLISECONDS,
+                        i -> i.buildTimeMillis)
+                .description("Time of the last search index build")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return indexData.indexedItems.size();
+    }
+
+    /*
+        Writers are not blocked while the properties are read, the updates committed meanwhile are applied
+        on top of the built index before it is published. The build reads the primary (not a read-only
+        transaction), an update applied after the build must not be missing from a lagging replica
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "PT${property.search.index.rebuild.minutes}M",
+            fixedDelayString = "PT${property.search.index.rebuild.minutes}M")
+    @Transactional
+    public void build() {
+        synchronized (buildLock) {
+            long startTime = System.nanoTime();
+
+            synchronized (this) {
+                buildUpdates = new HashMap<>();
+            }
+
+            try {
+                IndexData builtData = readIndexData();
+
+                synchronized (this) {
+                    buildUpdates.forEach((propId, item) -> {
+                        builtData.unlinkItem(propId);
+
+                        if (Objects.nonNull(item))
+                            builtData.linkItem(item);
+                    });
+
+                    indexData = builtData;
+                }
+            } finally {
+                synchronized (this) {
+                    buildUpdates = null;
+                }
+            }
+
+            buildTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            ready = true;
+
+            logger.info("Property search index is built: {} properties in {} ms", size(), buildTimeMillis);
+        }
+    }
+
+    private IndexData readIndexData() {
+        Map<Long, IdArray> countryIds = new HashMap<>();
+        Map<Long, IdArray> cityIds = new HashMap<>();
+        Map<Long, IdArray> categoryIds = new HashMap<>();
+        IndexData builtData = new IndexData();
+
+        /* Items are ordered by id, so the id arrays are built sorted */
+        try (Stream<PropertyIndexItem> items = propertyRegRepository.streamActivePropertyIndexItems()) {
+            items.forEach(item -> {
+                builtData.indexedItems.put(item.getPropertyId(), item);
+                appendId(countryIds, item.getCountryId(), item.getPropertyId());
+                appendId(cityIds, item.getCityId(), item.getPropertyId());
+                appendId(categoryIds, item.getRefPropCatId(), item.getPropertyId());
+                builtData.countItem(item, 1);
+            });
+        }
+
+        publish(builtData.countryIndex, countryIds);
+        publish(builtData.cityIndex, cityIds);
+        publish(builtData.categoryIndex, categoryIds);
+
+        return builtData;
+    }
+
+    /*
+        Returns up to limit property ids less than afterId in descending order.
+        The country (or city when defined) ids are scanned from the end, other keys are checked by
+        binary search. No catIds (null) means any category, empty catIds means no properties
+     */
+    public long[] findPropertyIds(long countryId, Long cityId, Collection<Long> catIds, long afterId, int limit) {
+        IndexData data = indexData;
+
+        long[] scanIds = Objects.isNull(cityId)
+                ? data.countryIndex.getOrDefault(countryId, NO_IDS)
+                : data.cityIndex.getOrDefault(cityId, NO_IDS);
+
+        long[] countryIds = Objects.isNull(cityId) ? null : data.countryIndex.getOrDefault(countryId, NO_IDS);
+
+        long[][] categoryIds = Objects.isNull(catIds) ? null : catIds.stream()
+                .map(catId -> data.categoryIndex.getOrDefault(catId, NO_IDS))
+                .toArray(long[][]::new);
+
+        long[] foundIds = new long[Math.min(limit, scanIds.length)];
+        int count = 0;
+
+        for (int i = lowerBound(scanIds, afterId) - 1; i >= 0 && count < foundIds.length; i--) {
+            long propId = scanIds[i];
+
+            if (contains(countryIds, propId) && containsAny(categoryIds, propId))
+                foundIds[count++] = propId;
+        }
+
+        return count == foundIds.length ? foundIds : Arrays.copyOf(foundIds, count);
+    }
+
+    /* Active properties per country id */
+    public Map<Long, Integer> getCountryCounts() {
+        return Collections.unmodifiableMap(indexData.countryCounts);
+    }
+
+    /* Active properties per city id of the country */
+    public Map<Long, Integer> getCityCounts(long countryId) {
+        return Collections.unmodifiableMap(indexData.cityCounts.getOrDefault(countryId, Map.of()));
+    }
+
+    /* Active properties per category id */
+    public Map<Long, Integer> getCategoryCounts() {
+        return Collections.unmodifiableMap(indexData.categoryCounts);
+    }
+
+    /* The index is changed after the transaction commit, a rolled back change is not indexed */
+    public void indexProperty(long propId, Long countryId, Long cityId, Long refPropCatId, boolean isActive) {
+        PropertyIndexItem item = new PropertyIndexItem(propId, countryId, cityId, refPropCatId);
+
+        TransactionCommit.afterCommit(() -> {
+            if (isActive)
+                putItem(item);
+            else
+                removeItem(propId);
+        });
+    }
+
+    private synchronized void putItem(PropertyIndexItem item) {
+        indexData.unlinkItem(item.getPropertyId());
+        indexData.linkItem(item);
+
+        if (Objects.nonNull(buildUpdates))
+            buildUpdates.put(item.getPropertyId(), item);
+    }
+
+    private synchronized void removeItem(long propId) {
+        indexData.unlinkItem(propId);
+
+        if (Objects.nonNull(buildUpdates))
+            buildUpdates.put(propId, null);
+    }
+
+    /* A key without properties is removed */
+    private static void addCount(Map<Long, Integer> counts, Long key, int delta) {
+        if (Objects.nonNull(key))
+            counts.compute(key, (k, count) -> {
+                int newCount = (Objects.isNull(count) ? 0 : count) + delta;
+                return newCount > 0 ? newCount : null;
+            });
+    }
+
+    private static void insertId(Map<Long, long[]> index, Long key, long propId) {
+        if (Objects.isNull(key))
+            return;
+
+        index.compute(key, (k, ids) -> {
+            long[] keyIds = Objects.isNull(ids) ? NO_IDS : ids;
+            int pos = Arrays.binarySearch(keyIds, propId);
+
+            if (pos >= 0)
+                return keyIds;
+
+            int insertPos = -pos - 1;
+            long[] newIds = new long[keyIds.length + 1];
+            System.arraycopy(keyIds, 0, newIds, 0, insertPos);
+            newIds[insertPos] = propId;
+            System.arraycopy(keyIds, insertPos, newIds, insertPos + 1, keyIds.length - insertPos);
+            return newIds;
+        });
+    }
+
+    private static void deleteId(Map<Long, long[]> index, Long key, long propId) {
+        if (Objects.isNull(key))
+            return;
+
+        index.computeIfPresent(key, (k, ids) -> {
+            int pos = Arrays.binarySearch(ids, propId);
+
+            if (pos < 0)
+                return ids;
+
+            if (ids.length == 1)
+                return null;
+
+            long[] newIds = new long[ids.length - 1];
+            System.arraycopy(ids, 0, newIds, 0, pos);
+            System.arraycopy(ids, pos + 1, newIds, pos, ids.length - pos - 1);
+            return newIds;
+        });
+    }
+
+    private static void appendId(Map<Long, IdArray> ids, Long key, long propId) {
+        if (Objects.nonNull(key))
+            ids.computeIfAbsent(key, k -> new IdArray()).append(propId);
+    }
+
+    private static void publish(Map<Long, long[]> index, Map<Long, IdArray> ids) {
+        ids.forEach((key, idArray) -> index.put(key, idArray.toArray()));
+    }
+
+    /* Index of the first id which is not less than propId */
+    private static int lowerBound(long[] ids, long propId) {
+        int pos = Arrays.binarySearch(ids, propId);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    private static boolean contains(long[] ids, long propId) {
+        return Objects.isNull(ids) || Arrays.binarySearch(ids, propId) >= 0;
+    }
+
+    private static boolean containsAny(long[][] ids, long propId) {
+        if (Objects.isNull(ids))
+            return true;
+
+        for (long[] keyIds : ids) {
+            if (Arrays.binarySearch(keyIds, propId) >= 0)
+                return true;
+        }
+        return false;
+    }
+
+    /* The id arrays, the indexed items and the counts which are published together */
+    private static class IndexData {
+
+        private final Map<Long, long[]> countryIndex = new ConcurrentHashMap<>();
+
+        private final Map<Long, long[]> cityIndex = new ConcurrentHashMap<>();
+
+        private final Map<Long, long[]> categoryIndex = new ConcurrentHashMap<>();
+
+        /* Property id -> indexed keys, are required to unlink a property from its previous keys */
+        private final Map<Long, PropertyIndexItem> indexedItems = new ConcurrentHashMap<>();
+
+        private final Map<Long, Integer> countryCounts = new ConcurrentHashMap<>();
+
+        /* Country id -> city id -> count */
+        private final Map<Long, Map<Long, Integer>> cityCounts = new ConcurrentHashMap<>();
+
+        private final Map<Long, Integer> categoryCounts = new ConcurrentHashMap<>();
+
+        void linkItem(PropertyIndexItem item) {
+            indexedItems.put(item.getPropertyId(), item);
+            insertId(countryIndex, item.getCountryId(), item.getPropertyId());
+            insertId(cityIndex, item.getCityId(), item.getPropertyId());
+            insertId(categoryIndex, item.getRefPropCatId(), item.getPropertyId());
+            countItem(item, 1);
+        }
+
+        void unlinkItem(long propId) {
+            PropertyIndexItem item = indexedItems.remove(propId);
+
+            if (Objects.nonNull(item)) {
+                deleteId(countryIndex, item.getCountryId(), propId);
+                deleteId(cityIndex, item.getCityId(), propId);
+                deleteId(categoryIndex, item.getRefPropCatId(), propId);
+                countItem(item, -1);
+            }
+        }
+
+        void countItem(PropertyIndexItem item, int delta) {
+            addCount(countryCounts, item.getCountryId(), delta);
+            addCount(categoryCounts, item.getRefPropCatId(), delta);
+
+            if (Objects.nonNull(item.getCountryId()))
+                cityCounts.compute(item.getCountryId(), (k, counts) -> {
+                    Map<Long, Integer> countryCityCounts = Objects.isNull(counts) ? new ConcurrentHashMap<>() : counts;
+                    addCount(countryCityCounts, item.getCityId(), delta);
+                    return countryCityCounts.isEmpty() ? null : countryCityCounts;
+                });
+        }
+    }
+
+    /* Growing array of ids which is used while building */
+    private static class IdArray {
+
+        private long[] ids = new long[BUILD_IDS_CAPACITY];
+
+        private int size;
+
+        void append(long propId) {
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = propId;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.bookatop.property.reg.lookups;
+
+import com.bookatop.catalog.book.api.model.City;
+import com.bookatop.catalog.book.api.model.Country;
+import com.bookatop.catalog.book.api.model.RoomType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.List;
+
+/*
+    Lookups are built once per catalog list. Catalog lists (countries, cities, room types) are cached by CachedCatalogBookClient
+    (per language), the same list instance is returned till the catalog is refreshed, so the lookups
+    are kept by the list identity (weak keys are compared by ==) and are dropped together with the list
+ */
+
+public class CatalogLookups {
+
+    private static final Cache<List<Country>, NameLookup> countryLookups =
+            Caffeine.newBuilder().weakKeys().build();
+
+    private static final Cache<List<City>, NameLookup> cityLookups =
+            Caffeine.newBuilder().weakKeys().build();
+
+    /* Room types are cached per property category and language */
+    private static final Cache<List<RoomType>, RoomTypeLookup> roomTypeLookups =
+            Caffeine.newBuilder().weakKeys().build();
+
+    private CatalogLookups() {
+    }
+
+    public static NameLookup countries(List<Country> countries) {
+        return countryLookups.get(countries, c -> new NameLookup(c, Country::getId, Country::getTsName));
+    }
+
+    public static NameLookup cities(List<City> cities) {
+        return cityLookups.get(cities, c -> new NameLookup(c, City::getId, City::getTsName));
+    }
+
+    public static RoomTypeLookup roomTypes(List<RoomType> roomTypes) {
+        return roomTypeLookups.get(roomTypes, RoomTypeLookup::new);
+    }
+}
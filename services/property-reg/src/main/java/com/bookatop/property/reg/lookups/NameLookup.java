@@ -0,0 +1,192 @@
+package com.bookatop.property.reg.lookups;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/*
+    The class keeps catalog items (countries, cities) of one language by id and by normalized name.
+    Names are compared ignoring case and accents, the first item of the same name wins.
+
+    Every name is also kept in a sorted array by its normalized form and by the normalized forms of its
+    words ("new york" and "york"), so the names of a prefix are found by a binary search and a scan of
+    the matching range
+ */
+
+public class NameLookup {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /* Punctuation, spaces of any kind, invisible format characters */
+    private static final Pattern NAME_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /* Letters which have no decomposition to a base letter and an accent */
+    private static final Map<Character, String> FOLDED_LETTERS = Map.of(
+            'ł', "l",
+            'ø', "o",
+            'đ', "d",
+            'ħ', "h",
+            'ı', "i",
+            'ß', "ss",
+            'æ', "ae",
+            'œ', "oe");
+
+    private final Map<Long, String> names;
+
+    private final Map<String, Long> ids;
+
+    private final String[] prefixKeys;
+
+    private final Long[] prefixIds;
+
+    /* Whether the key is the whole name, such matches go before the matches of the inner words */
+    private final boolean[] prefixNameStarts;
+
+    public <T> NameLookup(List<T> items, Function<T, Long> idGetter, Function<T, String> nameGetter) {
+        names = new HashMap<>(items.size() * 2);
+        ids = new HashMap<>(items.size() * 2);
+
+        List<PrefixKey> keys = new ArrayList<>(items.size() * 2);
+
+        for (T item : items) {
+            Long id = idGetter.apply(item);
+            String name = nameGetter.apply(item);
+
+            names.putIfAbsent(id, name);
+
+            if (Objects.isNull(name))
+                continue;
+
+            String normalizedName = normalizeName(name);
+
+            if (normalizedName.isEmpty())
+                continue;
+
+            ids.putIfAbsent(normalizedName, id);
+
+            keys.add(new PrefixKey(normalizedName, id, true));
+
+            for (int pos = normalizedName.indexOf(' '); pos >= 0; pos = normalizedName.indexOf(' ', pos + 1))
+                keys.add(new PrefixKey(normalizedName.substring(pos + 1), id, false));
+        }
+
+        keys.sort(Comparator.comparing((PrefixKey key) -> key.key));
+
+        prefixKeys = new String[keys.size()];
+        prefixIds = new Long[keys.size()];
+        prefixNameStarts = new boolean[keys.size()];
+
+        for (int i = 0; i < keys.size(); i++) {
+            prefixKeys[i] = keys.get(i).key;
+            prefixIds[i] = keys.get(i).id;
+            prefixNameStarts[i] = keys.get(i).nameStart;
+        }
+    }
+
+    /* Lower case without accents, the words are separated by a single space */
+    public static String normalizeName(String name) {
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFKD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+
+        StringBuilder letters = null;
+
+        for (int i = 0; i < folded.length(); i++) {
+            String foldedLetter = FOLDED_LETTERS.get(folded.charAt(i));
+
+            if (Objects.nonNull(foldedLetter)) {
+                if (Objects.isNull(letters))
+                    letters = new StringBuilder(folded.length() + 1).append(folded, 0, i);
+                letters.append(foldedLetter);
+            } else if (Objects.nonNull(letters)) {
+                letters.append(folded.charAt(i));
+            }
+        }
+
+        return NAME_SEPARATORS.matcher(Objects.isNull(letters) ? folded : letters)
+                .replaceAll(" ")
+                .trim();
+    }
+
+    public String findName(Long id) {
+        return names.get(id);
+    }
+
+    public Long findId(String name) {
+        return ids.get(normalizeName(name));
+    }
+
+    /*
+        Returns up to limit ids of the names which start with the prefix (or have a word which starts with it),
+        names which start with the prefix go first, each group is in the alphabetical order
+     */
+    public List<Long> findIdsByPrefix(String prefix, int limit) {
+        String normalizedPrefix = normalizeName(prefix);
+
+        if (normalizedPrefix.isEmpty() || limit <= 0)
+            return List.of();
+
+        Set<Long> nameStartIds = new LinkedHashSet<>();
+        Set<Long> wordStartIds = new LinkedHashSet<>();
+
+        for (int i = lowerBound(normalizedPrefix);
+             i < prefixKeys.length && prefixKeys[i].startsWith(normalizedPrefix) && nameStartIds.size() < limit;
+             i++) {
+            if (prefixNameStarts[i])
+                nameStartIds.add(prefixIds[i]);
+            else
+                wordStartIds.add(prefixIds[i]);
+        }
+
+        List<Long> foundIds = new ArrayList<>(nameStartIds);
+
+        for (Long id : wordStartIds) {
+            if (foundIds.size() == limit)
+                break;
+            if (!nameStartIds.contains(id))
+                foundIds.add(id);
+        }
+
+        return foundIds;
+    }
+
+    /* Index of the first key which is not less than the prefix (keys of different names may be equal) */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = prefixKeys.length;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (prefixKeys[mid].compareTo(prefix) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private static class PrefixKey {
+
+        private final String key;
+
+        private final Long id;
+
+        private final boolean nameStart;
+
+        PrefixKey(String key, Long id, boolean nameStart) {
+            this.key = key;
+            this.id = id;
+            this.nameStart = nameStart;
+        }
+    }
+}
@@ -1,12 +1,9 @@
 package com.bookatop.property.reg.lookups;
 
-import com.bookatop.catalog.book.api.model.City;
-import com.bookatop.catalog.book.api.model.Country;
 import com.bookatop.property.reg.api.model.properties.general.PropertyLookupItem;
 import com.bookatop.property.reg.clients.CachedCatalogBookClient;
 
 import java.util.Objects;
-import java.util.Optional;
 import java.util.function.Consumer;
 
 public class PropertyLookup {
@@ -22,12 +19,7 @@ public class PropertyLookup {
 
     public static PropertyLookupItem lookupCountry(Long countryId, String lang, CachedCatalogBookClient client) {
         if (countryId > 0) {
-            Optional<Country> country = client.getAllCountries(lang).stream()
-                    .filter(r -> r.getId().equals(countryId))
-                    .findFirst();
-            String countryName = country
-                    .flatMap(r -> Optional.of(r.getTsName()))
-                    .orElse(null);
+            String countryName = CatalogLookups.countries(client.getAllCountries(lang)).findName(countryId);
             return new PropertyLookupItem(countryId, countryName);
         }
         return null;
@@ -35,12 +27,7 @@ public class PropertyLookup {
 
     public static PropertyLookupItem lookupCity(Long countryId, Long cityId, String lang, CachedCatalogBookClient client) {
         if (countryId > 0 && cityId > 0) {
-            Optional<City> city = client.getAllCities(countryId, lang).stream()
-                    .filter(r -> r.getId().equals(cityId))
-                    .findFirst();
-            String cityName = city
-                    .flatMap(r -> Optional.of(r.getTsName()))
-                    .orElse(null);
+            String cityName = CatalogLookups.cities(client.getAllCities(countryId, lang)).findName(cityId);
             return new PropertyLookupItem(cityId, cityName);
         }
         return null;
@@ -0,0 +1,51 @@
+package com.bookatop.property.reg.lookups;
+
+import com.bookatop.catalog.book.api.model.RoomName;
+import com.bookatop.catalog.book.api.model.RoomType;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+    The class keeps room types of one property category and language: room type id -> name and
+    room type id -> room name id -> name. The first item of the same id wins
+ */
+
+public class RoomTypeLookup {
+
+    private final Map<Long, String> roomTypeNames;
+
+    private final Map<Long, Map<Long, String>> roomNames;
+
+    public RoomTypeLookup(List<RoomType> roomTypes) {
+        roomTypeNames = new HashMap<>(roomTypes.size() * 2);
+        roomNames = new HashMap<>(roomTypes.size() * 2);
+
+        for (RoomType roomType : roomTypes) {
+            if (roomTypeNames.containsKey(roomType.getId()))
+                continue;
+
+            roomTypeNames.put(roomType.getId(), roomType.getTsName());
+
+            Map<Long, String> typeRoomNames = new HashMap<>();
+
+            if (Objects.nonNull(roomType.getRoomNames())) {
+                for (RoomName roomName : roomType.getRoomNames())
+                    typeRoomNames.putIfAbsent(roomName.getId(), roomName.getTsName());
+            }
+
+            roomNames.put(roomType.getId(), typeRoomNames);
+        }
+    }
+
+    public String findRoomTypeName(Long roomTypeId) {
+        return roomTypeNames.get(roomTypeId);
+    }
+
+    public String findRoomName(Long roomTypeId, Long roomNameId) {
+        Map<Long, String> typeRoomNames = roomNames.get(roomTypeId);
+        return Objects.isNull(typeRoomNames) ? null : typeRoomNames.get(roomNameId);
+    }
+}
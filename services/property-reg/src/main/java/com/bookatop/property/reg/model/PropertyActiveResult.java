@@ -0,0 +1,35 @@
+package com.bookatop.property.reg.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/*
+    The class describes the result of a property in a batch activation: the active flag of the property,
+    or the message when the property is not changed (absent, not owned)
+ */
+
+@Setter
+@Getter
+public class PropertyActiveResult implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 4417330962187450275L;
+
+    private Long propertyId;
+
+    private Boolean isActive;
+
+    private String message;
+
+    public PropertyActiveResult() {
+    }
+
+    public PropertyActiveResult(Long propertyId, Boolean isActive, String message) {
+        this.propertyId = propertyId;
+        this.isActive = isActive;
+        this.message = message;
+    }
+}
@@ -2,6 +2,7 @@ package com.bookatop.property.reg.model;
 
 import com.bookatop.catalog.book.api.enums.CategoryTypes;
 import com.bookatop.property.reg.api.enums.PropertyJsonType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -25,6 +26,10 @@ public class PropertyEditView {
     @NotNull
     private CategoryTypes propCatType;
 
+    /* The ETag of the response, not a part of the body */
+    @JsonIgnore
+    private Long version;
+
     public PropertyEditView() {
         // POJO
     }
@@ -0,0 +1,34 @@
+package com.bookatop.property.reg.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/*
+    The class describes the number of active properties of a country or a city, the name is in the requested language
+ */
+
+@Setter
+@Getter
+public class PropertyFacetCount implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 7264091538120486375L;
+
+    private Long id;
+
+    private String name;
+
+    private Integer count;
+
+    public PropertyFacetCount() {
+    }
+
+    public PropertyFacetCount(Long id, String name, Integer count) {
+        this.id = id;
+        this.name = name;
+        this.count = count;
+    }
+}
@@ -0,0 +1,40 @@
+package com.bookatop.property.reg.model;
+
+import com.bookatop.catalog.book.api.enums.CategoryTypes;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/*
+    The class describes the numbers of active properties which are shown by the property list filters,
+    cities are counted for the requested country only
+ */
+
+@Setter
+@Getter
+public class PropertyFacets implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 5183046620974213811L;
+
+    private List<PropertyFacetCount> countries;
+
+    private List<PropertyFacetCount> cities;
+
+    private Map<CategoryTypes, Integer> categories;
+
+    public PropertyFacets() {
+    }
+
+    public PropertyFacets(List<PropertyFacetCount> countries,
+                          List<PropertyFacetCount> cities,
+                          Map<CategoryTypes, Integer> categories) {
+        this.countries = countries;
+        this.cities = cities;
+        this.categories = categories;
+    }
+}
@@ -0,0 +1,33 @@
+package com.bookatop.property.reg.model;
+
+import com.bookatop.property.reg.api.model.PropertyView;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/*
+    The class describes one keyset page of property views, nextCursor is null on the last page
+ */
+
+@Setter
+@Getter
+public class PropertyViewPage implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 3906142780934452108L;
+
+    private List<PropertyView> properties;
+
+    private String nextCursor;
+
+    public PropertyViewPage() {
+    }
+
+    public PropertyViewPage(List<PropertyView> properties, String nextCursor) {
+        this.properties = properties;
+        this.nextCursor = nextCursor;
+    }
+}
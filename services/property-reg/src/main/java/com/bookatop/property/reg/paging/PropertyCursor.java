@@ -0,0 +1,42 @@
+package com.bookatop.property.reg.paging;
+
+import com.bookatop.property.reg.exception.PropertyRegException;
+import org.apache.logging.log4j.util.Strings;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*
+    The cursor is an opaque (base64 url) form of the last property id of a page.
+    Properties are listed by id desc, so the next page starts from ids less than the cursor id
+ */
+
+public class PropertyCursor {
+
+    private static final String INVALID_CURSOR = "Invalid page cursor";
+
+    private PropertyCursor() {
+    }
+
+    public static String encode(Long propId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(propId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /* No cursor means the first page */
+    public static Long decode(String cursor) {
+        if (Strings.isBlank(cursor))
+            return Long.MAX_VALUE;
+
+        try {
+            long propId = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+
+            if (propId <= 0)
+                throw new PropertyRegException(INVALID_CURSOR);
+
+            return propId;
+        } catch (IllegalArgumentException e) {
+            throw new PropertyRegException(INVALID_CURSOR);
+        }
+    }
+}
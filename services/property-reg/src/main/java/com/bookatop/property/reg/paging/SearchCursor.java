@@ -0,0 +1,62 @@
+package com.bookatop.property.reg.paging;
+
+import com.bookatop.property.reg.exception.PropertyRegException;
+import lombok.Getter;
+import org.apache.logging.log4j.util.Strings;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*
+    The cursor is an opaque (base64 url) form of the rank and the id of the last search result of a page.
+    Search results are ordered by rank desc, id desc, so the next page starts from the results less than
+    the (rank, id) pair
+ */
+
+@Getter
+public class SearchCursor {
+
+    private static final String INVALID_CURSOR = "Invalid page cursor";
+
+    private static final String SEPARATOR = ":";
+
+    /* No cursor means the first page */
+    private static final SearchCursor FIRST_PAGE = new SearchCursor(Float.MAX_VALUE, Long.MAX_VALUE);
+
+    private final Float rank;
+
+    private final Long propId;
+
+    private SearchCursor(Float rank, Long propId) {
+        this.rank = rank;
+        this.propId = propId;
+    }
+
+    public static String encode(Float rank, Long propId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((rank + SEPARATOR + propId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String cursor) {
+        if (Strings.isBlank(cursor))
+            return FIRST_PAGE;
+
+        try {
+            String[] values = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(SEPARATOR, -1);
+
+            if (values.length != 2)
+                throw new PropertyRegException(INVALID_CURSOR);
+
+            float rank = Float.parseFloat(values[0]);
+            long propId = Long.parseLong(values[1]);
+
+            if (!Float.isFinite(rank) || propId <= 0)
+                throw new PropertyRegException(INVALID_CURSOR);
+
+            return new SearchCursor(rank, propId);
+        } catch (IllegalArgumentException e) {
+            throw new PropertyRegException(INVALID_CURSOR);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.bookatop.property.reg.patches;
+
+import com.bookatop.property.reg.exception.PropertyRegException;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+    The class applies a patch document to the tree of a stored property JSON, the patched tree is
+    written back instead of the whole JSON sent by a client.
+
+    Merge patch is RFC 7386, JSON Patch is RFC 6902 (add, remove, replace, move, copy, test operations
+    on JSON Pointer paths). The target tree is changed in place, the patched root is returned since a
+    patch can replace the root. An invalid patch or a failed operation rejects the whole patch
+ */
+
+public class PropertyJsonPatch {
+
+    public static final String INVALID_PROPERTY_PATCH = "Invalid property patch";
+
+    private static final String OP_FIELD = "op";
+
+    private static final String PATH_FIELD = "path";
+
+    private static final String FROM_FIELD = "from";
+
+    private static final String VALUE_FIELD = "value";
+
+    private static final String APPEND_INDEX = "-";
+
+    /* Numbers are equal by value in the test operation, 1 and 1.0 are the same number */
+    private static final Comparator<JsonNode> VALUE_COMPARATOR = (n1, n2) -> {
+        if (n1.isNumber() && n2.isNumber())
+            return n1.decimalValue().compareTo(n2.decimalValue());
+
+        return n1.equals(n2) ? 0 : 1;
+    };
+
+    private PropertyJsonPatch() {
+    }
+
+    public static JsonNode applyMergePatch(JsonNode target, JsonNode patch) {
+        if (Objects.isNull(patch) || patch.isMissingNode())
+            throw new PropertyRegException(INVALID_PROPERTY_PATCH);
+
+        return mergePatch(target, patch);
+    }
+
+    private static JsonNode mergePatch(JsonNode target, JsonNode patch) {
+        if (!patch.isObject())
+            return patch.deepCopy();
+
+        ObjectNode targetObject = Objects.nonNull(target) && target.isObject()
+                ? (ObjectNode) target
+                : JsonNodeFactory.instance.objectNode();
+
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+
+            if (field.getValue().isNull())
+                targetObject.remove(field.getKey());
+            else
+                targetObject.set(field.getKey(), mergePatch(targetObject.get(field.getKey()), field.getValue()));
+        }
+        return targetObject;
+    }
+
+    public static JsonNode applyJsonPatch(JsonNode target, JsonNode patch) {
+        if (Objects.isNull(patch) || !patch.isArray())
+            throw new PropertyRegException(INVALID_PROPERTY_PATCH);
+
+        JsonNode root = target;
+
+        for (JsonNode operation : patch)
+            root = applyOperation(root, operation);
+
+        return root;
+    }
+
+    private static JsonNode applyOperation(JsonNode root, JsonNode operation) {
+        JsonPointer path = readPointer(operation, PATH_FIELD);
+
+        switch (operation.path(OP_FIELD).asText()) {
+            case "add":
+                return add(root, path, readValue(operation));
+            case "remove":
+                remove(root, path);
+                return root;
+            case "replace":
+                return replace(root, path, readValue(operation));
+            case "move": {
+                JsonPointer from = readPointer(operation, FROM_FIELD);
+
+                /* a value cannot be moved into one of its own children */
+                if (!from.equals(path) && path.toString().startsWith(from + "/"))
+                    throw new PropertyRegException(INVALID_PROPERTY_PATCH);
+
+                JsonNode value = readExisting(root, from);
+
+                if (from.equals(path))
+                    return root;
+
+                remove(root, from);
+                return add(root, path, value);
+            }
+            case "copy":
+                return add(root, path, readExisting(root, readPointer(operation, FROM_FIELD)).deepCopy());
+            case "test":
+                if (!readExisting(root, path).equals(VALUE_COMPARATOR, readValue(operation)))
+                    throw new PropertyRegException(INVALID_PROPERTY_PATCH);
+
+                return root;
+            default:
+                throw new PropertyRegException(INVALID_PROPERTY_PATCH);
+        }
+    }
+
+    private static JsonPointer readPointer(JsonNode operation, String field) {
+        JsonNode pointer = operation.path(field);
+
+        if (!pointer.isTextual())
+            throw new PropertyRegException(INVALID_PROPERTY_PATCH);
+
+        try {
+            return JsonPointer.compile(pointer.textValue());
+        } catch (IllegalArgumentException e) {
+            throw new PropertyRegException(INVALID_PROPERTY_PATCH);
+        }
+    }
+
+    /* A null value is a JSON null, an absent value is an invalid operation */
+    private static JsonNode readValue(JsonNode operation) {
+        if (!operation.has(VALUE_FIELD))
+            throw new PropertyRegException(INVALID_PROPERTY_PATCH);
+
+        return operation.get(VALUE_FIELD).deepCopy();
+    }
+
+    private static JsonNode readExisting(JsonNode root, JsonPointer path) {
+        JsonNode node = root.at(path);
+
+        if (node.isMissingNode())
+            throw new PropertyRegException(INVALID_PROPERTY_PATCH);
+
+        return node;
+    }
+
+    private static int readIndex(JsonPointer path, ArrayNode array, boolean append) {
+        String segment = path.last().getMatchingProperty();
+
+        if (append && APPEND_INDEX.equals(segment))
+            return array.size();
+
+        int index = path.last().getMatchingIndex();
+        int maxIndex = append ? array.size() : array.size() - 1;
+
+        if (index < 0 || index > maxIndex)
+            throw new PropertyRegException(INVALID_PROPERTY_PATCH);
+
+        return index;
+    }
+
+    /* The parent of the path must exist, the added value replaces the root or an object member */
+    private static JsonNode add(JsonNode root, JsonPointer path, JsonNode value) {
+        if (path.matches())
+            return value;
+
+        JsonNode parent = root.at(path.head());
+
+        if (parent.isObject()) {
+            ((ObjectNode) parent).set(path.last().getMatchingProperty(), value);
+        } else if (parent.isArray()) {
+            ArrayNode array = (ArrayNode) parent;
+            array.insert(readIndex(path, array, true), value);
+        } else {
+            throw new PropertyRegException(INVALID_PROPERTY_PATCH);
+        }
+        return root;
+    }
+
+    /* The value at the path must exist, an array element is overwritten, not inserted */
+    private static JsonNode replace(JsonNode root, JsonPointer path, JsonNode value) {
+        readExisting(root, path);
+
+        if (path.matches())
+            return value;
+
+        JsonNode parent = root.at(path.head());
+
+        if (parent.isObject()) {
+            ((ObjectNode) parent).set(path.last().getMatchingProperty(), value);
+        } else {
+            ArrayNode array = (ArrayNode) parent;
+            array.set(readIndex(path, array, false), value);
+        }
+        return root;
+    }
+
+    private static void remove(JsonNode root, JsonPointer path) {
+        readExisting(root, path);
+
+        /* the root itself cannot be removed, a property JSON is always an object */
+        if (path.matches())
+            throw new PropertyRegException(INVALID_PROPERTY_PATCH);
+
+        JsonNode parent = root.at(path.head());
+
+        if (parent.isObject()) {
+            ((ObjectNode) parent).remove(path.last().getMatchingProperty());
+        } else {
+            ArrayNode array = (ArrayNode) parent;
+            array.remove(readIndex(path, array, false));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.bookatop.property.reg.readers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+
+/*
+    The class hashes the canonical form of property JSON: object keys are sorted, numbers are written
+    without trailing zeros and there is no whitespace. JSON of the same content has the same hash
+    whatever the key order or formatting of the client is. The canonical JSON is written straight
+    into the digest, no copy of it is kept
+ */
+
+public class PropertyJsonHash {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private PropertyJsonHash() {
+    }
+
+    public static String hash(JsonFactory jsonFactory, JsonNode rootNode) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+
+            try (JsonGenerator generator = jsonFactory.createGenerator(
+                    new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+                writeCanonical(generator, rootNode);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeCanonical(JsonGenerator generator, JsonNode node) throws IOException {
+        if (node.isObject()) {
+            List<String> fieldNames = new ArrayList<>(node.size());
+            node.fieldNames().forEachRemaining(fieldNames::add);
+            Collections.sort(fieldNames);
+
+            generator.writeStartObject();
+            for (String fieldName : fieldNames) {
+                generator.writeFieldName(fieldName);
+                writeCanonical(generator, node.get(fieldName));
+            }
+            generator.writeEndObject();
+        } else if (node.isArray()) {
+            generator.writeStartArray();
+            for (JsonNode element : node)
+                writeCanonical(generator, element);
+            generator.writeEndArray();
+        } else if (node.isNumber()) {
+            /* 1, 1.0 and 1E+0 are the same number */
+            generator.writeNumber(node.decimalValue().stripTrailingZeros().toPlainString());
+        } else if (node.isTextual()) {
+            generator.writeString(node.textValue());
+        } else if (node.isBoolean()) {
+            generator.writeBoolean(node.booleanValue());
+        } else {
+            generator.writeNull();
+        }
+    }
+}
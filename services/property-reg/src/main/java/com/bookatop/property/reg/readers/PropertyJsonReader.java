@@ -0,0 +1,67 @@
+package com.bookatop.property.reg.readers;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.util.Objects;
+
+/*
+    The class reads plain fields of property JSON (address ids, name and main image url stored in separate columns).
+    The JSON is parsed once by readTree, all fields are read from the same tree
+ */
+
+public class PropertyJsonReader {
+
+    private static final String COUNTRY_ID_PATH = "/hotelAboutData/address/country/id";
+
+    private static final String CITY_ID_PATH = "/hotelAboutData/address/city/id";
+
+    private static final String PROPERTY_NAME_PATH = "/hotelAboutData/propName";
+
+    /* the first image is the main image of a property */
+    private static final String IMAGE_URL_PATH = "/hotelPhotosData/images/0/url";
+
+    private PropertyJsonReader() {
+    }
+
+    /* Absent or invalid JSON is a missing node */
+    public static JsonNode readTree(ObjectMapper objectMapper, String json) {
+        if (Objects.isNull(json))
+            return MissingNode.getInstance();
+
+        try {
+            return objectMapper.readTree(json);
+        } catch (JacksonException e) {
+            return MissingNode.getInstance();
+        }
+    }
+
+    private static Long readLong(JsonNode rootNode, String path) {
+        JsonNode node = rootNode.at(path);
+        return node.canConvertToLong() ? node.asLong() : null;
+    }
+
+    /* Absent, null or non-scalar fields are null */
+    private static String readText(JsonNode rootNode, String path) {
+        JsonNode node = rootNode.at(path);
+        return node.isValueNode() && !node.isNull() ? node.asText() : null;
+    }
+
+    public static Long readCountryId(JsonNode rootNode) {
+        return readLong(rootNode, COUNTRY_ID_PATH);
+    }
+
+    public static Long readCityId(JsonNode rootNode) {
+        return readLong(rootNode, CITY_ID_PATH);
+    }
+
+    public static String readPropertyName(JsonNode rootNode) {
+        return readText(rootNode, PROPERTY_NAME_PATH);
+    }
+
+    public static String readImageUrl(JsonNode rootNode) {
+        return readText(rootNode, IMAGE_URL_PATH);
+    }
+}
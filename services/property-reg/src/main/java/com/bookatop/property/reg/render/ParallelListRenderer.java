@@ -0,0 +1,76 @@
+package com.bookatop.property.reg.render;
+
+import com.bookatop.property.reg.config.SpringRenderConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/*
+    Renders list items in parallel keeping the list order. A list is split into at most
+    property.render.parallelism contiguous parts, the request thread renders the first part itself,
+    so one big list can't take the whole render executor
+ */
+
+@Component
+public class ParallelListRenderer {
+
+    private final Executor renderExecutor;
+
+    private final int parallelism;
+
+    public ParallelListRenderer(@Qualifier(SpringRenderConfig.PROPERTY_RENDER_EXECUTOR) Executor renderExecutor,
+                                @Value("${property.render.parallelism}") int parallelism) {
+        this.renderExecutor = renderExecutor;
+        this.parallelism = parallelism;
+    }
+
+    private static <T, R> List<R> renderPart(List<T> items, Function<T, R> render) {
+        List<R> results = new ArrayList<>(items.size());
+        for (T item : items)
+            results.add(render.apply(item));
+        return results;
+    }
+
+    /* An exception of an item render is thrown as is */
+    public <T, R> List<R> render(List<T> items, Function<T, R> render) {
+        int parts = Math.min(parallelism, items.size());
+
+        if (parts <= 1)
+            return Collections.unmodifiableList(renderPart(items, render));
+
+        int partSize = (items.size() + parts - 1) / parts;
+
+        List<CompletableFuture<List<R>>> futureParts = new ArrayList<>(parts);
+
+        for (int from = partSize; from < items.size(); from += partSize) {
+            List<T> partItems = items.subList(from, Math.min(from + partSize, items.size()));
+            futureParts.add(CompletableFuture.supplyAsync(() -> renderPart(partItems, render), renderExecutor));
+        }
+
+        List<R> results = new ArrayList<>(items.size());
+
+        try {
+            results.addAll(renderPart(items.subList(0, partSize), render));
+
+            for (CompletableFuture<List<R>> futurePart : futureParts)
+                results.addAll(futurePart.join());
+
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        } finally {
+            futureParts.forEach(f -> f.cancel(false));
+        }
+
+        return Collections.unmodifiableList(results);
+    }
+}
@@ -0,0 +1,37 @@
+package com.bookatop.property.reg.repository;
+
+import lombok.Getter;
+
+/*
+    Edit list row of an owner property, the summary columns are read without the property JSON
+ */
+
+@Getter
+public class PropertyEditSummary {
+
+    private final Long propertyId;
+
+    private final String propertyName;
+
+    private final Long refPropTypeId;
+
+    private final Long refPropCatId;
+
+    private final String imageUrl;
+
+    private final Boolean isActive;
+
+    public PropertyEditSummary(Long propertyId,
+                               String propertyName,
+                               Long refPropTypeId,
+                               Long refPropCatId,
+                               String imageUrl,
+                               Boolean isActive) {
+        this.propertyId = propertyId;
+        this.propertyName = propertyName;
+        this.refPropTypeId = refPropTypeId;
+        this.refPropCatId = refPropCatId;
+        this.imageUrl = imageUrl;
+        this.isActive = isActive;
+    }
+}
@@ -0,0 +1,12 @@
+package com.bookatop.property.reg.repository;
+
+/*
+    Number of active properties of a country, city or category id
+ */
+
+public interface PropertyKeyCount {
+
+    Long getId();
+
+    Long getCount();
+}
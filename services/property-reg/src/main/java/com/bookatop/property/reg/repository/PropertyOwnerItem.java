@@ -0,0 +1,38 @@
+package com.bookatop.property.reg.repository;
+
+import lombok.Getter;
+
+/*
+    Owner and index keys of a property, enough to check the ownership of a batch edit and to refresh
+    the search index without loading the property
+ */
+
+@Getter
+public class PropertyOwnerItem {
+
+    private final Long propertyId;
+
+    private final Long refUserId;
+
+    private final Long refPropCatId;
+
+    private final Long countryId;
+
+    private final Long cityId;
+
+    private final Boolean isActive;
+
+    public PropertyOwnerItem(Long propertyId,
+                             Long refUserId,
+                             Long refPropCatId,
+                             Long countryId,
+                             Long cityId,
+                             Boolean isActive) {
+        this.propertyId = propertyId;
+        this.refUserId = refUserId;
+        this.refPropCatId = refPropCatId;
+        this.countryId = countryId;
+        this.cityId = cityId;
+        this.isActive = isActive;
+    }
+}
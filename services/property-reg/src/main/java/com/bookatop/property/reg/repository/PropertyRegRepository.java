@@ -1,14 +1,156 @@
 package com.bookatop.property.reg.repository;
 
 import com.bookatop.property.reg.entity.PropertyEntity;
+import com.bookatop.property.reg.index.PropertyIndexItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/*
+    List queries are keyset paged: id less than the cursor id, ordered by id desc, limited by the page size.
+    Returning List instead of Page means no count query
+ */
 
 @Repository
 public interface PropertyRegRepository extends JpaRepository<PropertyEntity, Long> {
 
-    List<PropertyEntity> findAllByOrderByIdDesc();
+    String STREAM_FETCH_SIZE = "100";
+
+    /*
+        The inverse one-to-one side can't be lazy, without the fetch join the user property of every
+        loaded property is read by a separate select (the category of the property view)
+     */
+    String VIEW_FETCH_PATH = "userPropertyEntity";
+
+    /* Public view queries return active properties only (partial indexes on is_active) */
+
+    @EntityGraph(attributePaths = VIEW_FETCH_PATH)
+    Optional<PropertyEntity> findByIdAndIsActiveTrue(Long id);
+
+    /* The version columns only, property_json is not read */
+    Optional<PropertyVersion> findVersionByIdAndIsActiveTrue(Long id);
+
+    @EntityGraph(attributePaths = VIEW_FETCH_PATH)
+    List<PropertyEntity> findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(Long afterId, Pageable pageable);
+
+    @EntityGraph(attributePaths = VIEW_FETCH_PATH)
+    List<PropertyEntity> findAllByCountryIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+            Long countryId, Long afterId, Pageable pageable);
+
+    @EntityGraph(attributePaths = VIEW_FETCH_PATH)
+    List<PropertyEntity> findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+            Long countryId, Long cityId, Long afterId, Pageable pageable);
+
+    @EntityGraph(attributePaths = VIEW_FETCH_PATH)
+    List<PropertyEntity> findAllByCountryIdAndUserPropertyEntityRefPropCatIdInAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+            Long countryId, Collection<Long> refPropCatIds, Long afterId, Pageable pageable);
+
+    @EntityGraph(attributePaths = VIEW_FETCH_PATH)
+    List<PropertyEntity> findAllByCountryIdAndCityIdAndUserPropertyEntityRefPropCatIdInAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+            Long countryId, Long cityId, Collection<Long> refPropCatIds, Long afterId, Pageable pageable);
+
+    @EntityGraph(attributePaths = VIEW_FETCH_PATH)
+    List<PropertyEntity> findAllByIdInAndIsActiveTrueOrderByIdDesc(Collection<Long> ids);
+
+    /*
+        Full-text search of active properties (GIN index on search_vector) ranked by ts_rank, keyset paged
+        by (rank, id). Null countryId, cityId mean any address
+     */
+    @Query(value = "select p.id as id, ts_rank(p.search_vector, q.query) as rank " +
+            "from properties p, " +
+            "websearch_to_tsquery('simple', :query) q(query) " +
+            "where p.is_active and p.search_vector @@ q.query " +
+            "and (cast(:countryId as bigint) is null or p.country_id = :countryId) " +
+            "and (cast(:cityId as bigint) is null or p.city_id = :cityId) " +
+            "and (ts_rank(p.search_vector, q.query), p.id) < (cast(:afterRank as real), :afterId) " +
+            "order by rank desc, id desc " +
+            "limit :limit", nativeQuery = true)
+    List<PropertySearchHit> searchActiveProperties(@Param("query") String query,
+                                                   @Param("countryId") Long countryId,
+                                                   @Param("cityId") Long cityId,
+                                                   @Param("afterRank") Float afterRank,
+                                                   @Param("afterId") Long afterId,
+                                                   @Param("limit") int limit);
+
+    /*
+        The same full-text search limited to properties of the given categories
+     */
+    @Query(value = "select p.id as id, ts_rank(p.search_vector, q.query) as rank " +
+            "from properties p " +
+            "join user_properties u on u.property_id = p.id, " +
+            "websearch_to_tsquery('simple', :query) q(query) " +
+            "where p.is_active and p.search_vector @@ q.query " +
+            "and (cast(:countryId as bigint) is null or p.country_id = :countryId) " +
+            "and (cast(:cityId as bigint) is null or p.city_id = :cityId) " +
+            "and u.ref_property_category_id in (:catIds) " +
+            "and (ts_rank(p.search_vector, q.query), p.id) < (cast(:afterRank as real), :afterId) " +
+            "order by rank desc, id desc " +
+            "limit :limit", nativeQuery = true)
+    List<PropertySearchHit> searchActivePropertiesByCategories(@Param("query") String query,
+                                                               @Param("countryId") Long countryId,
+                                                               @Param("cityId") Long cityId,
+                                                               @Param("catIds") Collection<Long> catIds,
+                                                               @Param("afterRank") Float afterRank,
+                                                               @Param("afterId") Long afterId,
+                                                               @Param("limit") int limit);
+
+    /*
+        Forward-only read of all active properties, rows are fetched from the database by STREAM_FETCH_SIZE.
+        The stream must be consumed and closed inside a transaction
+     */
+    @Query("select p from PropertyEntity p left join fetch p.userPropertyEntity where p.isActive = true order by p.id desc")
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    Stream<PropertyEntity> streamAllActiveByOrderByIdDesc();
+
+    /*
+        A single set-based update of the active flag, every changed property is a new version.
+        Properties which already have the flag are not updated
+     */
+    @Modifying
+    @Query("update PropertyEntity p set p.isActive = :isActive, p.version = p.version + 1, " +
+            "p.modifiedDate = current_timestamp where p.id in :ids and p.isActive <> :isActive")
+    int updateIsActiveByIds(@Param("ids") Collection<Long> ids, @Param("isActive") Boolean isActive);
+
+    /*
+        Facet counts of active properties while the property search index is not built, the user property
+        is joined as the index items are
+     */
+    @Query("select p.countryId as id, count(p) as count from PropertyEntity p join p.userPropertyEntity u " +
+            "where p.isActive = true and p.countryId is not null group by p.countryId")
+    List<PropertyKeyCount> countActiveByCountryId();
+
+    @Query("select p.cityId as id, count(p) as count from PropertyEntity p join p.userPropertyEntity u " +
+            "where p.isActive = true and p.countryId = :countryId and p.cityId is not null group by p.cityId")
+    List<PropertyKeyCount> countActiveByCityId(@Param("countryId") Long countryId);
+
+    @Query("select u.refPropCatId as id, count(p) as count from PropertyEntity p join p.userPropertyEntity u " +
+            "where p.isActive = true group by u.refPropCatId")
+    List<PropertyKeyCount> countActiveByRefPropCatId();
+
+    /* Search keys of active properties for building the property search index */
+    @Query("select new com.bookatop.property.reg.index.PropertyIndexItem(p.id, p.countryId, p.cityId, u.refPropCatId) " +
+            "from PropertyEntity p join p.userPropertyEntity u where p.isActive = true order by p.id")
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    Stream<PropertyIndexItem> streamActivePropertyIndexItems();
 
 }
@@ -0,0 +1,12 @@
+package com.bookatop.property.reg.repository;
+
+/*
+    Property found by the full-text search and its rank
+ */
+
+public interface PropertySearchHit {
+
+    Long getId();
+
+    Float getRank();
+}
@@ -0,0 +1,16 @@
+package com.bookatop.property.reg.repository;
+
+import java.sql.Timestamp;
+
+/*
+    Version of a property without its JSON, it is enough to validate the cached views of the clients
+ */
+
+public interface PropertyVersion {
+
+    Long getId();
+
+    Long getVersion();
+
+    Timestamp getModifiedDate();
+}
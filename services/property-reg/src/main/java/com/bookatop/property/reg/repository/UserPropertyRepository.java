@@ -2,13 +2,26 @@ package com.bookatop.property.reg.repository;
 
 import com.bookatop.property.reg.entity.UserPropertyEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface UserPropertyRepository extends JpaRepository<UserPropertyEntity, Long> {
 
-    List<UserPropertyEntity> findAllByRefUserIdOrderByPropertyIdDesc(Long refUserId);
+    /* A single query of the summary columns, property_json is not read */
+    @Query("select new com.bookatop.property.reg.repository.PropertyEditSummary(" +
+            "u.propertyId, p.propertyName, u.refPropTypeId, u.refPropCatId, p.imageUrl, p.isActive) " +
+            "from UserPropertyEntity u join u.propertyEntity p where u.refUserId = :refUserId order by u.propertyId desc")
+    List<PropertyEditSummary> findEditSummariesByRefUserId(@Param("refUserId") Long refUserId);
+
+    /* Owners of the properties in a single query, absent properties have no item */
+    @Query("select new com.bookatop.property.reg.repository.PropertyOwnerItem(" +
+            "u.propertyId, u.refUserId, u.refPropCatId, p.countryId, p.cityId, p.isActive) " +
+            "from UserPropertyEntity u join u.propertyEntity p where u.propertyId in :propIds")
+    List<PropertyOwnerItem> findOwnerItemsByPropertyIds(@Param("propIds") Collection<Long> propIds);
 
 }
@@ -5,27 +5,42 @@ import com.bookatop.catalog.book.api.model.PropertyType;
 import com.bookatop.property.reg.api.enums.PropertyJsonType;
 import com.bookatop.property.reg.api.model.properties.general.address.PropertyAddress;
 import com.bookatop.property.reg.api.model.properties.hotel.HotelProperty;
+import com.bookatop.property.reg.cache.PropertyQueryCache;
+import com.bookatop.property.reg.cache.PropertyViewCache;
 import com.bookatop.property.reg.clients.CachedCatalogBookClient;
 import com.bookatop.property.reg.entity.PropertyEntity;
 import com.bookatop.property.reg.entity.UserPropertyEntity;
 import com.bookatop.property.reg.exception.PropertyRegException;
+import com.bookatop.property.reg.exception.PropertyVersionException;
+import com.bookatop.property.reg.index.PropertySearchIndex;
 import com.bookatop.property.reg.lookups.PropertyLookup;
+import com.bookatop.property.reg.model.PropertyActiveResult;
 import com.bookatop.property.reg.model.PropertyEditView;
 import com.bookatop.property.reg.model.PropertyEditItem;
 import com.bookatop.property.reg.model.PropertyUpdate;
+import com.bookatop.property.reg.patches.PropertyJsonPatch;
+import com.bookatop.property.reg.readers.PropertyJsonHash;
+import com.bookatop.property.reg.readers.PropertyJsonReader;
+import com.bookatop.property.reg.repository.PropertyOwnerItem;
 import com.bookatop.property.reg.repository.PropertyRegRepository;
 import com.bookatop.property.reg.repository.UserPropertyRepository;
-import com.fasterxml.jackson.core.JacksonException;
+import com.bookatop.property.reg.validators.EditValidator;
+import com.bookatop.property.reg.validators.ViewVersions;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class PropertyEditService {
@@ -44,6 +59,12 @@ public class PropertyEditService {
 
     private static final String UNSUPPORTED_PROPERTY_TYPE = "Unsupported property type";
 
+    private static final String INVALID_PROPERTY_IDS = "Invalid property ids";
+
+    private static final int ACTIVE_BATCH_MAX_SIZE = 100;
+
+    private static final String PROPERTY_IS_CHANGED = "Property is changed by another edit";
+
     private final PropertyRegRepository propertyRegRepository;
 
     private final CachedCatalogBookClient cachedCatalogBookClient;
@@ -52,14 +73,26 @@ public class PropertyEditService {
 
     private final UserPropertyRepository userPropertyRepository;
 
+    private final PropertySearchIndex propertySearchIndex;
+
+    private final PropertyViewCache propertyViewCache;
+
+    private final PropertyQueryCache propertyQueryCache;
+
     public PropertyEditService(PropertyRegRepository propertyRegRepository,
                                CachedCatalogBookClient cachedCatalogBookClient,
                                ObjectMapper objectMapper,
-                               UserPropertyRepository userPropertyRepository) {
+                               UserPropertyRepository userPropertyRepository,
+                               PropertySearchIndex propertySearchIndex,
+                               PropertyViewCache propertyViewCache,
+                               PropertyQueryCache propertyQueryCache) {
         this.propertyRegRepository = propertyRegRepository;
         this.cachedCatalogBookClient = cachedCatalogBookClient;
         this.objectMapper = objectMapper;
         this.userPropertyRepository = userPropertyRepository;
+        this.propertySearchIndex = propertySearchIndex;
+        this.propertyViewCache = propertyViewCache;
+        this.propertyQueryCache = propertyQueryCache;
     }
 
     private PropertyEntity requestPropertyEntity(long userId, long propId) {
@@ -75,6 +108,58 @@ public class PropertyEditService {
         return propertyEntity;
     }
 
+    /* The owned property of the version which the client has read */
+    private PropertyEntity requestPropertyEntity(long userId, long propId, EditValidator validator) {
+        PropertyEntity propertyEntity = requestPropertyEntity(userId, propId);
+
+        if (!validator.isMatched(ViewVersions.propertyTag(propId, propertyEntity.getVersion())))
+            throw new PropertyVersionException(PROPERTY_IS_CHANGED);
+
+        return propertyEntity;
+    }
+
+    /*
+        The search index, the rendered views and the query pages of the address are refreshed after
+        the edit is committed
+     */
+    private void refreshPropertyEntity(PropertyEntity propertyEntity) {
+        propertySearchIndex.indexProperty(
+                propertyEntity.getId(),
+                propertyEntity.getCountryId(),
+                propertyEntity.getCityId(),
+                propertyEntity.getUserPropertyEntity().getRefPropCatId(),
+                propertyEntity.getIsActive());
+
+        propertyViewCache.evictProperty(propertyEntity.getId());
+        propertyQueryCache.evictAddress(propertyEntity.getCountryId(), propertyEntity.getCityId());
+    }
+
+    /* The same refresh for a property which is updated without loading the entity */
+    private void refreshPropertyItem(PropertyOwnerItem ownerItem, Boolean isActive) {
+        propertySearchIndex.indexProperty(
+                ownerItem.getPropertyId(),
+                ownerItem.getCountryId(),
+                ownerItem.getCityId(),
+                ownerItem.getRefPropCatId(),
+                isActive);
+
+        propertyViewCache.evictProperty(ownerItem.getPropertyId());
+        propertyQueryCache.evictAddress(ownerItem.getCountryId(), ownerItem.getCityId());
+    }
+
+    /*
+        Every edit is a new version of the property, the version and modified_date are updated by the flush.
+        The flush fails when another edit has changed the version since the property is read
+     */
+    private long savePropertyEntity(PropertyEntity propertyEntity) {
+        propertyRegRepository.save(propertyEntity);
+        propertyRegRepository.flush();
+
+        refreshPropertyEntity(propertyEntity);
+
+        return propertyEntity.getVersion();
+    }
+
     private PropertyCategory findPropertyCategory(long catId) {
         Optional<PropertyCategory> propCategory =
                 Optional.of(cachedCatalogBookClient.getPropertyCategory(catId));
@@ -87,13 +172,55 @@ public class PropertyEditService {
             throw new PropertyRegException(UNSUPPORTED_JSON_TYPE);
     }
 
+    /* The edit methods return the new version of the property */
     @Transactional
-    public void activeProperty(long userId, long propId, Boolean activate) {
-        PropertyEntity propertyEntity = requestPropertyEntity(userId, propId);
+    public long activeProperty(long userId, long propId, Boolean activate, EditValidator validator) {
+        PropertyEntity propertyEntity = requestPropertyEntity(userId, propId, validator);
 
         propertyEntity.setIsActive(activate);
 
-        propertyRegRepository.save(propertyEntity);
+        return savePropertyEntity(propertyEntity);
+    }
+
+    /*
+        Activates (deactivates) the owned properties of the list in one transaction: the owners are checked
+        by a single query, the changed properties are updated by a single statement. A property which is
+        absent or not owned is not changed, its result has the reason instead of the active flag
+     */
+    @Transactional
+    public List<PropertyActiveResult> activeProperties(long userId, List<Long> propIds, Boolean activate) {
+        if (Objects.isNull(propIds) || propIds.isEmpty() || propIds.size() > ACTIVE_BATCH_MAX_SIZE
+                || propIds.stream().anyMatch(Objects::isNull) || Objects.isNull(activate))
+            throw new PropertyRegException(INVALID_PROPERTY_IDS);
+
+        Set<Long> uniquePropIds = new LinkedHashSet<>(propIds);
+
+        Map<Long, PropertyOwnerItem> ownerItems = userPropertyRepository.findOwnerItemsByPropertyIds(uniquePropIds)
+                .stream()
+                .collect(Collectors.toMap(PropertyOwnerItem::getPropertyId, Function.identity()));
+
+        List<PropertyOwnerItem> changedItems = ownerItems.values().stream()
+                .filter(item -> item.getRefUserId().equals(userId) && !activate.equals(item.getIsActive()))
+                .toList();
+
+        if (!changedItems.isEmpty()) {
+            propertyRegRepository.updateIsActiveByIds(
+                    changedItems.stream().map(PropertyOwnerItem::getPropertyId).toList(), activate);
+
+            changedItems.forEach(item -> refreshPropertyItem(item, activate));
+        }
+
+        return uniquePropIds.stream().map(propId -> {
+            PropertyOwnerItem ownerItem = ownerItems.get(propId);
+
+            if (Objects.isNull(ownerItem))
+                return new PropertyActiveResult(propId, null, PROPERTY_IS_ABSENT);
+
+            if (!ownerItem.getRefUserId().equals(userId))
+                return new PropertyActiveResult(propId, null, INCORRECT_PROPERTY_OWNER);
+
+            return new PropertyActiveResult(propId, activate, null);
+        }).toList();
     }
 
     public PropertyEditView getEditProperty(long userId, long propId, String lang) {
@@ -121,57 +248,89 @@ public class PropertyEditService {
             PropertyCategory propCategory =
                     findPropertyCategory(propEntity.getUserPropertyEntity().getRefPropCatId());
 
-            return new PropertyEditView(hotelProperty,
+            PropertyEditView propEditView = new PropertyEditView(hotelProperty,
                     propEntity.getPropertyJsonType(),
                     propCategory.getId(),
                     propCategory.getCategoryType());
 
+            propEditView.setVersion(propEntity.getVersion());
+
+            return propEditView;
+
         } catch (IOException e) {
             throw new PropertyRegException(e.getMessage());
         }
     }
 
     @Transactional
-    public void updateProperty(long userId, long propId, PropertyUpdate propUpdate) {
-        PropertyEntity propertyEntity = requestPropertyEntity(userId, propId);
+    public long updateProperty(long userId, long propId, PropertyUpdate propUpdate, EditValidator validator) {
+        PropertyEntity propertyEntity = requestPropertyEntity(userId, propId, validator);
 
         PropertyUpdate pUpdate = Optional.ofNullable(propUpdate)
                 .orElseThrow(() -> new PropertyRegException(INVALID_PROPERTY_UPDATE));
 
         validateSupportedPropertyJsonType(pUpdate.getPropJsonType());
 
-        propertyEntity.setPropertyJson(pUpdate.getPropJson());
+        /* property_json is jsonb, the database does not accept invalid JSON */
+        JsonNode propRootNode = PropertyJsonReader.readTree(objectMapper, pUpdate.getPropJson());
 
-        propertyRegRepository.save(propertyEntity);
+        if (propRootNode.isMissingNode())
+            throw new PropertyRegException(INVALID_PROPERTY_UPDATE);
+
+        return savePropertyJson(propertyEntity, pUpdate.getPropJson(), propRootNode);
     }
 
-    private String readPropertyName(String json, PropertyJsonType jsonType) {
+    /*
+        Applies a merge patch (RFC 7386) or a JSON Patch (RFC 6902) to the stored property JSON, only the
+        patched JSON is written back. The patched JSON must stay an object
+     */
+    @Transactional
+    public long patchProperty(long userId, long propId, JsonNode patch, boolean jsonPatch, EditValidator validator) {
+        PropertyEntity propertyEntity = requestPropertyEntity(userId, propId, validator);
+
+        validateSupportedPropertyJsonType(propertyEntity.getPropertyJsonType());
+
+        JsonNode propRootNode = PropertyJsonReader.readTree(objectMapper, propertyEntity.getPropertyJson());
+
+        if (propRootNode.isMissingNode())
+            throw new PropertyRegException(INVALID_PROPERTY_UPDATE);
+
+        JsonNode patchedRootNode = jsonPatch
+                ? PropertyJsonPatch.applyJsonPatch(propRootNode, patch)
+                : PropertyJsonPatch.applyMergePatch(propRootNode, patch);
+
+        if (!patchedRootNode.isObject())
+            throw new PropertyRegException(PropertyJsonPatch.INVALID_PROPERTY_PATCH);
+
         try {
-            JsonNode rootNode = objectMapper.readTree(json);
-            return Optional.ofNullable(rootNode.get("hotelAboutData"))
-                    .flatMap(rootElement -> Optional.ofNullable(rootElement.get("propName")))
-                    .flatMap(value -> Optional.ofNullable(value.asText())).orElse(null);
-        } catch (JacksonException e) {
-            return null;
+            return savePropertyJson(propertyEntity, objectMapper.writeValueAsString(patchedRootNode), patchedRootNode);
+        } catch (JsonProcessingException e) {
+            throw new PropertyRegException(e.getMessage());
         }
     }
 
-    private String readImageUrl(String json, PropertyJsonType jsonType) {
-        try {
-            JsonNode rootNode = objectMapper.readTree(json);
-            JsonNode images = Optional.ofNullable(rootNode.get("hotelPhotosData")).flatMap(rootElement ->
-                    Optional.ofNullable(rootElement.get("images"))).orElse(null);
-            if (Objects.nonNull(images) && images.isArray()) {
-                Iterator<JsonNode> itr = images.iterator();
-                if (itr.hasNext()) {
-                    JsonNode url = itr.next();
-                    return url.get("url").asText();
-                }
-            }
-            return null;
-        } catch (JacksonException e) {
-            return null;
-        }
+    /*
+        The address and summary columns are read from the tree of the written JSON. JSON of the same content
+        as the stored one is not written: the version, modified_date and the caches stay unchanged
+     */
+    private long savePropertyJson(PropertyEntity propertyEntity, String propJson, JsonNode propRootNode) {
+        String propJsonHash = PropertyJsonHash.hash(objectMapper.getFactory(), propRootNode);
+
+        if (propJsonHash.equals(propertyEntity.getPropertyJsonHash()))
+            return propertyEntity.getVersion();
+
+        /* the query pages of the previous address are changed too when the property is moved */
+        propertyQueryCache.evictAddress(propertyEntity.getCountryId(), propertyEntity.getCityId());
+
+        propertyEntity.setPropertyJson(propJson);
+        propertyEntity.setPropertyJsonHash(propJsonHash);
+        propertyEntity.setCountryId(PropertyJsonReader.readCountryId(propRootNode));
+        propertyEntity.setCityId(PropertyJsonReader.readCityId(propRootNode));
+
+        propertyEntity.setPropertyName(PropertyJsonReader.readPropertyName(propRootNode));
+        propertyEntity.setImageUrl(PropertyJsonReader.readImageUrl(propRootNode));
+
+        return savePropertyEntity(propertyEntity);
     }
 
     private PropertyType findPropertyType(long typeId) {
@@ -182,20 +341,16 @@ public class PropertyEditService {
         return pType.orElseThrow(() -> new PropertyRegException(UNSUPPORTED_PROPERTY_TYPE));
     }
 
+    /* The list is read from the summary columns, no property JSON is read or parsed */
     public List<PropertyEditItem> getEditPropertyList(Long userId, String lang) {
-        return userPropertyRepository.findAllByRefUserIdOrderByPropertyIdDesc(userId).stream().map(p -> {
-                    String json = p.getPropertyEntity().getPropertyJson();
-                    PropertyJsonType jsonType = p.getPropertyEntity().getPropertyJsonType();
-
-                    return new PropertyEditItem(
-                            p.getPropertyId(),
-                            readPropertyName(json, jsonType),
-                            findPropertyType(p.getRefPropTypeId()).getPropertyType(),
-                            findPropertyCategory(p.getRefPropCatId()).getCategoryType(),
-                            readImageUrl(json, jsonType),
-                            p.getPropertyEntity().getIsActive()
-                    );
-                }
-        ).toList();
+        return userPropertyRepository.findEditSummariesByRefUserId(userId).stream()
+                .map(p -> new PropertyEditItem(
+                        p.getPropertyId(),
+                        p.getPropertyName(),
+                        findPropertyType(p.getRefPropTypeId()).getPropertyType(),
+                        findPropertyCategory(p.getRefPropCatId()).getCategoryType(),
+                        p.getImageUrl(),
+                        p.getIsActive()))
+                .toList();
     }
 }
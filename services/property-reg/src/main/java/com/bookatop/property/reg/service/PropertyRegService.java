@@ -1,14 +1,19 @@
 package com.bookatop.property.reg.service;
 
+import com.bookatop.property.reg.cache.PropertyQueryCache;
 import com.bookatop.property.reg.entity.PropertyEntity;
 import com.bookatop.property.reg.entity.UserPropertyEntity;
 import com.bookatop.property.reg.exception.PropertyRegException;
+import com.bookatop.property.reg.index.PropertySearchIndex;
 import com.bookatop.property.reg.model.PropertyAdd;
 import com.bookatop.property.reg.model.UserProperty;
+import com.bookatop.property.reg.readers.PropertyJsonHash;
+import com.bookatop.property.reg.readers.PropertyJsonReader;
 import com.bookatop.property.reg.repository.PropertyRegRepository;
 import com.bookatop.property.reg.repository.UserPropertyRepository;
-import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
 import org.apache.logging.log4j.util.Strings;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,35 +31,41 @@ public class PropertyRegService {
 
     private final ObjectMapper objectMapper;
 
+    private final PropertySearchIndex propertySearchIndex;
+
+    private final PropertyQueryCache propertyQueryCache;
+
     public PropertyRegService(PropertyRegRepository propertyRegRepository,
                               UserPropertyRepository userPropertyRepository,
-                              ObjectMapper objectMapper) {
+                              ObjectMapper objectMapper,
+                              PropertySearchIndex propertySearchIndex,
+                              PropertyQueryCache propertyQueryCache) {
         this.propertyRegRepository = propertyRegRepository;
         this.userPropertyRepository = userPropertyRepository;
         this.objectMapper = objectMapper;
+        this.propertySearchIndex = propertySearchIndex;
+        this.propertyQueryCache = propertyQueryCache;
+    }
+
+    /* Invalid JSON is read as a missing node */
+    private JsonNode readPropertyJson(PropertyAdd request) {
+        return Objects.isNull(request)
+                ? MissingNode.getInstance()
+                : PropertyJsonReader.readTree(objectMapper, request.getPropJson());
     }
 
-    private void isValidProperty(PropertyAdd request) {
-        isValidPropertyData(request);
+    private void isValidProperty(PropertyAdd request, JsonNode propRootNode) {
+        isValidPropertyData(request, propRootNode);
     }
 
-    private void isValidPropertyData(PropertyAdd request) {
+    private void isValidPropertyData(PropertyAdd request, JsonNode propRootNode) {
         if (Objects.isNull(request) ||
                 Strings.isBlank(request.getPropJson()) ||
-                !isValidJson(request.getPropJson()) ||
+                propRootNode.isMissingNode() ||
                 !isValidUserPropertyData(request.getUserProperty()))
             throw new PropertyRegException(INVALID_PROPERTY_DATA);
     }
 
-    private boolean isValidJson(String json) {
-        try {
-            objectMapper.readTree(json);
-        } catch (JacksonException e) {
-            return false;
-        }
-        return true;
-    }
-
     private boolean isValidUserPropertyData(UserProperty userProperty) {
         return Objects.nonNull(userProperty.getRefPropTypeId()) &&
                 Objects.nonNull(userProperty.getRefPropCatId()) &&
@@ -64,13 +75,24 @@ public class PropertyRegService {
     @Transactional
     public void addProperty(PropertyAdd property) {
 
-        isValidProperty(property);
+        /* property JSON is parsed once for the validation, the address and summary columns */
+        JsonNode propRootNode = readPropertyJson(property);
+
+        isValidProperty(property, propRootNode);
 
         PropertyEntity propEntity = new PropertyEntity(
                 property.getPropJson(),
                 property.getPropJsonType(),
                 true
         );
+
+        propEntity.setCountryId(PropertyJsonReader.readCountryId(propRootNode));
+        propEntity.setCityId(PropertyJsonReader.readCityId(propRootNode));
+        propEntity.setPropertyJsonHash(PropertyJsonHash.hash(objectMapper.getFactory(), propRootNode));
+
+        propEntity.setPropertyName(PropertyJsonReader.readPropertyName(propRootNode));
+        propEntity.setImageUrl(PropertyJsonReader.readImageUrl(propRootNode));
+
         PropertyEntity propResEntity = propertyRegRepository.save(propEntity);
 
         UserProperty userProperty = property.getUserProperty();
@@ -82,5 +104,14 @@ public class PropertyRegService {
                 userProperty.getRefUserId()
         );
         userPropertyRepository.save(userPropEntity);
+
+        propertySearchIndex.indexProperty(
+                propResEntity.getId(),
+                propEntity.getCountryId(),
+                propEntity.getCityId(),
+                userProperty.getRefPropCatId(),
+                propEntity.getIsActive());
+
+        propertyQueryCache.evictAddress(propEntity.getCountryId(), propEntity.getCityId());
     }
 }
\ No newline at end of file
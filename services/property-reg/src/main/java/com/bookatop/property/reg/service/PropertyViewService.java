@@ -7,25 +7,63 @@ import com.bookatop.property.reg.api.model.PropertyView;
 import com.bookatop.property.reg.api.model.properties.general.address.PropertyAddress;
 import com.bookatop.property.reg.api.model.properties.general.layout.PropertyArea;
 import com.bookatop.property.reg.api.model.properties.hotel.HotelProperty;
+import com.bookatop.property.reg.cache.PropertyQueryCache;
+import com.bookatop.property.reg.cache.PropertyQueryKey;
+import com.bookatop.property.reg.cache.PropertyQueryResult;
+import com.bookatop.property.reg.cache.PropertyViewCache;
 import com.bookatop.property.reg.clients.CachedCatalogBookClient;
 import com.bookatop.property.reg.entity.PropertyEntity;
 import com.bookatop.property.reg.exception.PropertyRegException;
+import com.bookatop.property.reg.index.PropertySearchIndex;
+import com.bookatop.property.reg.lookups.CatalogLookups;
+import com.bookatop.property.reg.lookups.NameLookup;
 import com.bookatop.property.reg.lookups.PropertyLookup;
+import com.bookatop.property.reg.lookups.RoomTypeLookup;
+import com.bookatop.property.reg.model.PropertyFacetCount;
+import com.bookatop.property.reg.model.PropertyFacets;
+import com.bookatop.property.reg.model.PropertyViewPage;
+import com.bookatop.property.reg.paging.PropertyCursor;
+import com.bookatop.property.reg.paging.SearchCursor;
+import com.bookatop.property.reg.render.ParallelListRenderer;
+import com.bookatop.property.reg.repository.PropertyKeyCount;
 import com.bookatop.property.reg.repository.PropertyRegRepository;
+import com.bookatop.property.reg.repository.PropertySearchHit;
+import com.bookatop.property.reg.repository.PropertyVersion;
+import com.bookatop.property.reg.validators.ViewValidator;
+import com.bookatop.property.reg.validators.ViewVersions;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.logging.log4j.util.BiConsumer;
 import org.apache.logging.log4j.util.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.function.Consumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/*
+    The view reads are read-only transactions, so they are routed to the database replica when it is configured
+ */
+
 @Service
+@Transactional(readOnly = true)
 public class PropertyViewService {
 
     private static final byte COUNTRY_INDEX = 0;
@@ -36,18 +74,60 @@ public class PropertyViewService {
 
     private static final String UNSUPPORTED_JSON_TYPE = "Unsupported JSON type";
 
+    private static final byte NDJSON_LINE_SEPARATOR = '\n';
+
+    private static final String INVALID_SEARCH_QUERY = "Invalid search query";
+
+    private static final int SEARCH_QUERY_MAX_LENGTH = 200;
+
+    private static final String INVALID_SUGGEST_PREFIX = "Invalid suggest prefix";
+
+    private static final int SUGGEST_PREFIX_MAX_LENGTH = 200;
+
+    private static final int SUGGEST_SIZE = 10;
+
+    /* Category ids are not checked when any category is searched, the list must not be empty for SQL */
+
+    private final Logger logger = LoggerFactory.getLogger(PropertyViewService.class);
+
+    @Value("${property.view.page.default.size}")
+    private int defaultPageSize;
+
+    @Value("${property.view.page.max.size}")
+    private int maxPageSize;
+
     private final PropertyRegRepository propertyRegRepository;
 
     private final CachedCatalogBookClient cachedCatalogBookClient;
 
     private final ObjectMapper objectMapper;
 
+    private final EntityManager entityManager;
+
+    private final PropertySearchIndex propertySearchIndex;
+
+    private final PropertyViewCache propertyViewCache;
+
+    private final PropertyQueryCache propertyQueryCache;
+
+    private final ParallelListRenderer parallelListRenderer;
+
     public PropertyViewService(PropertyRegRepository propertyRegRepository,
                                CachedCatalogBookClient cachedCatalogBookClient,
-                               ObjectMapper objectMapper) {
+                               ObjectMapper objectMapper,
+                               EntityManager entityManager,
+                               PropertySearchIndex propertySearchIndex,
+                               PropertyViewCache propertyViewCache,
+                               PropertyQueryCache propertyQueryCache,
+                               ParallelListRenderer parallelListRenderer) {
         this.propertyRegRepository = propertyRegRepository;
         this.cachedCatalogBookClient = cachedCatalogBookClient;
         this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.propertySearchIndex = propertySearchIndex;
+        this.propertyViewCache = propertyViewCache;
+        this.propertyQueryCache = propertyQueryCache;
+        this.parallelListRenderer = parallelListRenderer;
     }
 
     private static void validateSupportedPropertyJsonType(PropertyJsonType propertyJsonType) {
@@ -55,27 +135,15 @@ public class PropertyViewService {
             throw new PropertyRegException(UNSUPPORTED_JSON_TYPE);
     }
 
-    private BiConsumer<Consumer<String>, Consumer<String>> lookupLayoutArea(Long roomTypeId, Long roomNameId,
-                                                                            Long refCatId, String lang) {
+    /* Room type and room name are two map hits in the lookup of the property category */
+    private void lookupLayoutArea(PropertyArea propArea, Long refCatId, String lang) {
+        RoomTypeLookup roomTypes = CatalogLookups.roomTypes(
+                cachedCatalogBookClient.getPropertyRoomTypes(refCatId, lang));
 
-        Optional<RoomType> roomType = cachedCatalogBookClient.getPropertyRoomTypes(
-                        refCatId,
-                        lang).stream()
-                .filter(r -> r.getId().equals(roomTypeId))
-                .findFirst();
+        Long roomTypeId = propArea.getRoomType().getId();
 
-        Optional<RoomName> roomName = roomType.flatMap(r ->
-                r.getRoomNames().stream()
-                        .filter(n -> n.getId().equals(roomNameId))
-                        .findFirst());
-
-        String rtName = roomType.flatMap(r -> Optional.of(r.getTsName())).orElse(null);
-        String rName = roomName.flatMap(r -> Optional.of(r.getTsName())).orElse(null);
-
-        return (a, b) -> {
-            a.accept(rtName);
-            b.accept(rName);
-        };
+        propArea.getRoomType().setName(roomTypes.findRoomTypeName(roomTypeId));
+        propArea.getRoomName().setName(roomTypes.findRoomName(roomTypeId, propArea.getRoomName().getId()));
     }
 
     private PropertyView makePropertyView(PropertyEntity propEntity, String lang) {
@@ -87,16 +155,7 @@ public class PropertyViewService {
 
             PropertyArea propArea = hotelProperty.getHotelLayoutData().getLayoutArea();
 
-            PropertyLookup.updatePropertyLookup(
-                    lookupLayoutArea(
-                            propArea.getRoomType().getId(),
-                            propArea.getRoomName().getId(),
-                            propEntity.getUserPropertyEntity().getRefPropCatId(),
-                            lang),
-                    (BiConsumer<Consumer<String>, Consumer<String>> f) -> f.accept(
-                            propArea.getRoomType()::setName,
-                            propArea.getRoomName()::setName)
-            );
+            lookupLayoutArea(propArea, propEntity.getUserPropertyEntity().getRefPropCatId(), lang);
 
             PropertyAddress propAddress = hotelProperty.getHotelAboutData().getAddress();
 
@@ -126,90 +185,204 @@ public class PropertyViewService {
         }
     }
 
-    private boolean equalsPropCategoryType(CategoryTypes propCatType, CategoryTypes pCatType) {
-        return propCatType.equals(Optional.ofNullable(pCatType).orElse(propCatType));
+    private List<Long> findCategoryIds(CategoryTypes pCatType) {
+        return cachedCatalogBookClient.getPropertyTypes().stream()
+                .flatMap(t -> cachedCatalogBookClient.getPropertyCategories(t.getId()).stream())
+                .filter(c -> pCatType.equals(c.getCategoryType()))
+                .map(PropertyCategory::getId)
+                .toList();
     }
 
-    private PropertyView queryPropertyViewCountry(PropertyEntity propEntity, String lang, Long countryId,
-                                                  CategoryTypes pCatType) {
-        try {
-            if (Objects.isNull(countryId)) return null;
+    private List<PropertyEntity> findPropertyEntities(long[] propIds) {
+        return propIds.length == 0
+                ? List.of()
+                : propertyRegRepository.findAllByIdInAndIsActiveTrueOrderByIdDesc(Arrays.stream(propIds).boxed().toList());
+    }
 
-            HotelProperty hotelProperty = objectMapper.readValue(propEntity.getPropertyJson(), HotelProperty.class);
-            PropertyAddress propAddress = hotelProperty.getHotelAboutData().getAddress();
+    /*
+        Filtering by address and category is done by the property search index, the database only reads
+        the found page by primary key. The next cursor is of the last found id, a property which is inactive
+        by the time it is read shortens the page, it does not end the list.
 
-            // todo get all data in constructor instead of making request each time
-            Long refPropCatId = propEntity.getUserPropertyEntity().getRefPropCatId();
-            PropertyCategory propertyCategory =
-                    cachedCatalogBookClient.getPropertyCategory(refPropCatId);
+        Till the index is built the filtering is done by the database (indexed country_id, city_id columns).
+        Category type is resolved to the category ids of the catalog
+     */
+    private EntityPage queryPropertyEntities(Long countryId, Long cityId, CategoryTypes pCatType,
+                                             Long afterId, Pageable page) {
+        List<Long> catIds = Objects.isNull(pCatType) ? null : findCategoryIds(pCatType);
 
-            if (propAddress.getCountry().getId().equals(countryId) &&
-                    equalsPropCategoryType(propertyCategory.getCategoryType(), pCatType))
-                return makePropertyView(propEntity, lang);
+        if (Objects.nonNull(catIds) && catIds.isEmpty())
+            return new EntityPage(List.of(), null);
 
-            return null;
+        if (propertySearchIndex.isReady()) {
+            long[] propIds = propertySearchIndex.findPropertyIds(countryId, cityId, catIds, afterId,
+                    page.getPageSize());
 
-        } catch (JsonProcessingException e) {
-            throw new PropertyRegException(e.getMessage());
+            String nextCursor = propIds.length < page.getPageSize()
+                    ? null
+                    : PropertyCursor.encode(propIds[propIds.length - 1]);
+
+            return new EntityPage(findPropertyEntities(propIds), nextCursor);
         }
+
+        List<PropertyEntity> propEntities;
+
+        if (Objects.isNull(catIds)) {
+            propEntities = Objects.isNull(cityId)
+                    ? propertyRegRepository.findAllByCountryIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                    countryId, afterId, page)
+                    : propertyRegRepository.findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                    countryId, cityId, afterId, page);
+        } else {
+            propEntities = Objects.isNull(cityId)
+                    ? propertyRegRepository.findAllByCountryIdAndUserPropertyEntityRefPropCatIdInAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                    countryId, catIds, afterId, page)
+                    : propertyRegRepository.findAllByCountryIdAndCityIdAndUserPropertyEntityRefPropCatIdInAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                    countryId, cityId, catIds, afterId, page);
+        }
+
+        return new EntityPage(propEntities, makeNextCursor(propEntities, page));
     }
 
-    private PropertyView queryPropertyViewCountryCity(PropertyEntity propEntity, String lang, Long countryId,
-                                                      Long cityId, CategoryTypes pCatType) {
-        try {
+    /* Page size is limited by the server whatever limit is requested */
+    private Pageable makePage(Integer limit) {
+        int pageSize = Objects.isNull(limit) || limit <= 0
+                ? defaultPageSize
+                : Math.min(limit, maxPageSize);
+        return PageRequest.of(0, pageSize);
+    }
 
-            if (Objects.isNull(countryId) && Objects.isNull(cityId)) return null;
+    /*
+        The page is validated before rendering. Only the page tag is checked, the latest modification
+        time of the page properties would not notice a property which is deactivated or moved out of the page.
+        The view eviction stamp is taken before the page properties are read
+     */
+    private Optional<PropertyViewPage> makePropertyViewPage(List<PropertyEntity> propEntities, String nextCursor,
+                                                            String lang, long viewStamp, ViewValidator validator) {
+        if (validator.isNotModified(ViewVersions.pageTag(propEntities, nextCursor), -1))
+            return Optional.empty();
 
-            HotelProperty hotelProperty = objectMapper.readValue(propEntity.getPropertyJson(), HotelProperty.class);
-            PropertyAddress propAddress = hotelProperty.getHotelAboutData().getAddress();
+        List<PropertyView> propViews = parallelListRenderer.render(propEntities,
+                propEntity -> renderPropertyView(propEntity, lang, viewStamp));
 
-            // todo get all data in constructor instead of making request each time
-            PropertyCategory propertyCategory =
-                    cachedCatalogBookClient.getPropertyCategory(propEntity.getUserPropertyEntity().getRefPropCatId());
+        return Optional.of(new PropertyViewPage(propViews, nextCursor));
+    }
 
-            if (propAddress.getCountry().getId().equals(countryId) &&
-                    propAddress.getCity().getId().equals(cityId) &&
-                    equalsPropCategoryType(propertyCategory.getCategoryType(), pCatType))
-                return makePropertyView(propEntity, lang);
+    /* A full page means there might be the next one */
+    private static String makeNextCursor(List<PropertyEntity> propEntities, Pageable page) {
+        return propEntities.size() < page.getPageSize()
+                ? null
+                : PropertyCursor.encode(propEntities.get(propEntities.size() - 1).getId());
+    }
 
-            return null;
+    private Optional<PropertyViewPage> makePropertyViewPage(List<PropertyEntity> propEntities, Pageable page,
+                                                            String lang, long viewStamp, ViewValidator validator) {
+        return makePropertyViewPage(propEntities, makeNextCursor(propEntities, page), lang, viewStamp, validator);
+    }
 
-        } catch (JsonProcessingException e) {
-            throw new PropertyRegException(e.getMessage());
-        }
+    private NameLookup countryLookup(String lang) {
+        return CatalogLookups.countries(cachedCatalogBookClient.getAllCountries(lang));
+    }
+
+    private NameLookup cityLookup(Long countryId, String lang) {
+        return CatalogLookups.cities(cachedCatalogBookClient.getAllCities(countryId, lang));
     }
 
+    /* The name of the request language, or of the default language (null lang) when it is not found */
     private Long findCountryId(String name, String lang) {
-        if (Strings.isNotBlank(name)) {
-            Optional<Country> fCountry = cachedCatalogBookClient.getAllCountries(lang).stream()
-                    .filter(c -> c.getTsName().equalsIgnoreCase(name)).findFirst();
-            return fCountry.flatMap(c -> Optional.of(c.getId())).orElse(null);
-        }
-        return null;
+        if (Strings.isBlank(name))
+            return null;
+
+        Long countryId = countryLookup(lang).findId(name);
+
+        if (Objects.isNull(countryId) && Objects.nonNull(lang))
+            countryId = countryLookup(null).findId(name);
+
+        return countryId;
     }
 
     private Long findCityId(Long countryId, String name, String lang) {
-        if (Objects.nonNull(countryId) && Strings.isNotBlank(name)) {
-            Optional<City> fCity = cachedCatalogBookClient.getAllCities(countryId, lang).stream()
-                    .filter(c -> c.getTsName().equalsIgnoreCase(name)).findFirst();
-            return fCity.flatMap(c -> Optional.of(c.getId())).orElse(null);
-        }
-        return null;
+        if (Objects.isNull(countryId) || Strings.isBlank(name))
+            return null;
+
+        Long cityId = cityLookup(countryId, lang).findId(name);
+
+        if (Objects.isNull(cityId) && Objects.nonNull(lang))
+            cityId = cityLookup(countryId, null).findId(name);
+
+        return cityId;
     }
 
+    /* The entity is read before the render, a view of an entity read before an edit is not cached */
+    private PropertyView renderPropertyView(PropertyEntity propEntity, String lang, long viewStamp) {
+        return propertyViewCache.getPropertyView(propEntity.getId(), lang, viewStamp,
+                () -> makePropertyView(propEntity, lang));
+    }
+
+    /* A cached view means no database read */
     public PropertyView getViewProperty(long propId, String lang) {
-        PropertyEntity propEntity = propertyRegRepository.findById(propId)
-                .orElseThrow(() -> new PropertyRegException(PROPERTY_IS_ABSENT));
-        return makePropertyView(propEntity, lang);
+        return propertyViewCache.getPropertyView(propId, lang, () -> {
+            PropertyEntity propEntity = propertyRegRepository.findByIdAndIsActiveTrue(propId)
+                    .orElseThrow(() -> new PropertyRegException(PROPERTY_IS_ABSENT));
+            return makePropertyView(propEntity, lang);
+        });
     }
 
-    public List<PropertyView> getViewProperties(String lang) {
-        return propertyRegRepository.findAllByOrderByIdDesc().stream()
-                .map(propEntity -> makePropertyView(propEntity, lang))
-                .toList();
+    /* Empty when the client has the current version, the property JSON is not read then */
+    public Optional<PropertyView> getViewProperty(long propId, String lang, ViewValidator validator) {
+        PropertyVersion propVersion = propertyViewCache.getPropertyVersion(propId, () ->
+                propertyRegRepository.findVersionByIdAndIsActiveTrue(propId)
+                        .orElseThrow(() -> new PropertyRegException(PROPERTY_IS_ABSENT)));
+
+        if (validator.isNotModified(ViewVersions.propertyTag(propId, propVersion.getVersion()),
+                propVersion.getModifiedDate().getTime()))
+            return Optional.empty();
+
+        return Optional.of(getViewProperty(propId, lang));
     }
 
-    public List<PropertyView> queryViewProperties(String lang, String cc, CategoryTypes pCatType) {
+    /* Empty when the client has the current version of the page */
+    public Optional<PropertyViewPage> getViewProperties(String lang, String after, Integer limit,
+                                                        ViewValidator validator) {
+        Pageable page = makePage(limit);
+        long viewStamp = propertyViewCache.getEvictionStamp();
+
+        return makePropertyViewPage(
+                propertyRegRepository.findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(PropertyCursor.decode(after), page),
+                page,
+                lang,
+                viewStamp,
+                validator);
+    }
+
+    /*
+        Renders properties one by one while reading them from the database, every view is written as a
+        single NDJSON line and flushed. Rendered entities are detached, so the heap use does not depend
+        on the number of properties. The full listing is not cached, it would push out the hot views
+     */
+    public void streamViewProperties(String lang, OutputStream outputStream) throws IOException {
+        try (Stream<PropertyEntity> propEntities = propertyRegRepository.streamAllActiveByOrderByIdDesc()) {
+            Iterator<PropertyEntity> propIterator = propEntities.iterator();
+
+            while (propIterator.hasNext()) {
+                PropertyEntity propEntity = propIterator.next();
+
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(makePropertyView(propEntity, lang)));
+                    outputStream.write(NDJSON_LINE_SEPARATOR);
+                    outputStream.flush();
+                } catch (PropertyRegException e) {
+                    /* the response is already committed, a broken property must not break the stream */
+                    logger.warn("Property {} is skipped: {}", propEntity.getId(), e.getMessage());
+                }
+
+                entityManager.clear();
+            }
+        }
+    }
+
+    /* Calls the query with the country and city ids of the cc names, no query if they are unknown */
+    private <T> Optional<T> queryByAddress(String cc, String lang, BiFunction<Long, Long, T> query) {
         // "\\,", -1 means to include an empty string to the array result
 
         Optional<List<String>> allOpts = Optional.ofNullable(cc)
@@ -223,36 +396,245 @@ public class PropertyViewService {
             String cityName = o.size() > 1 ? o.get(CITY_INDEX) : null;
 
             /*
-                lang is null means relying on default language (english)
+                names are resolved in the request language, then in the default language
                 ?cc=Belarus,Minsk    -> ["Belarus","Minsk"]
                 ?cc=Belarus,         -> ["Belarus", ""]          (if comma, city is empty)
                 ?cc=Belarus          -> ["Belarus"]              (no comma, city is null)
 
-                *lang null means to use default language defined in app config
+                names are compared ignoring case, accents and punctuation ("minsk", "Mińsk.")
              */
 
-            Long countryId = findCountryId(countryName, null);
+            Long countryId = findCountryId(countryName, lang);
 
             if (Objects.isNull(countryId))
                 return Optional.empty();
 
+            Long cityId = null;
+
             if (Strings.isNotBlank(countryName) && Objects.nonNull(cityName)) {
-                Long cityId = findCityId(countryId, cityName, null);
+                cityId = findCityId(countryId, cityName, lang);
 
                 if (Objects.isNull(cityId))
                     return Optional.empty();
-
-                return Optional.of(propertyRegRepository.findAllByOrderByIdDesc().stream()
-                        .flatMap(propEntity -> Stream.of(queryPropertyViewCountryCity(propEntity, lang, countryId, cityId, pCatType)))
-                        .filter(Objects::nonNull)
-                        .toList());
             }
 
-            return Optional.of(propertyRegRepository.findAllByOrderByIdDesc().stream()
-                    .flatMap(propEntity -> Stream.of(queryPropertyViewCountry(propEntity, lang, countryId, pCatType)))
-                    .filter(Objects::nonNull)
-                    .toList());
+            return Optional.of(query.apply(countryId, cityId));
+        });
+    }
+
+    /*
+        Empty when the client has the current version of the page, an unknown address is an empty page.
+        The property ids of the page are cached by the query, a cached page reads its active properties by
+        primary key and keeps the next cursor of the found page
+     */
+    public Optional<PropertyViewPage> queryViewProperties(String lang, String cc, CategoryTypes pCatType,
+                                                          String after, Integer limit, ViewValidator validator) {
+        if (Objects.isNull(cc))
+            return Optional.of(new PropertyViewPage(List.of(), null));
+
+        Pageable page = makePage(limit);
+        Long afterId = PropertyCursor.decode(after);
+
+        PropertyQueryKey queryKey = new PropertyQueryKey(cc, pCatType, lang, afterId, page.getPageSize());
+        PropertyQueryResult queryResult = propertyQueryCache.getQueryResult(queryKey);
+        long viewStamp = propertyViewCache.getEvictionStamp();
+
+        if (Objects.nonNull(queryResult)) {
+            return queryResult.isUnknownAddress()
+                    ? Optional.of(new PropertyViewPage(List.of(), null))
+                    : makePropertyViewPage(findPropertyEntities(queryResult.getPropIds()),
+                    queryResult.getNextCursor(), lang, viewStamp, validator);
+        }
+
+        long evictionStamp = propertyQueryCache.getEvictionStamp();
+
+        return queryByAddress(cc, lang, (countryId, cityId) -> {
+            EntityPage entityPage = queryPropertyEntities(countryId, cityId, pCatType, afterId, page);
+            List<PropertyEntity> propEntities = entityPage.propEntities;
+
+            propertyQueryCache.putQueryResult(queryKey, new PropertyQueryResult(countryId, cityId,
+                    propEntities.stream().mapToLong(PropertyEntity::getId).toArray(), entityPage.nextCursor),
+                    evictionStamp);
+
+            return makePropertyViewPage(propEntities, entityPage.nextCursor, lang, viewStamp, validator);
+
+        }).orElseGet(() -> {
+            propertyQueryCache.putQueryResult(queryKey, PropertyQueryResult.unknownAddress(), evictionStamp);
+
+            return Optional.of(new PropertyViewPage(List.of(), null));
+        });
+    }
+
+    private static String validateSearchQuery(String query) {
+        if (Strings.isBlank(query) || query.length() > SEARCH_QUERY_MAX_LENGTH)
+            throw new PropertyRegException(INVALID_SEARCH_QUERY);
+        return query.trim();
+    }
+
+    /* Found properties are read by primary key with their user properties and rendered in the rank order */
+    private Optional<PropertyViewPage> searchPropertyPage(String lang, String query, Long countryId, Long cityId,
+                                                          CategoryTypes pCatType, String after, Integer limit,
+                                                          ViewValidator validator) {
+        List<Long> catIds = Objects.isNull(pCatType) ? null : findCategoryIds(pCatType);
+
+        if (Objects.nonNull(catIds) && catIds.isEmpty())
+            return Optional.of(new PropertyViewPage(List.of(), null));
+
+        SearchCursor cursor = SearchCursor.decode(after);
+        Pageable page = makePage(limit);
+        long viewStamp = propertyViewCache.getEvictionStamp();
+
+        List<PropertySearchHit> hits = Objects.isNull(catIds)
+                ? propertyRegRepository.searchActiveProperties(query, countryId, cityId,
+                cursor.getRank(), cursor.getPropId(), page.getPageSize())
+                : propertyRegRepository.searchActivePropertiesByCategories(query, countryId, cityId, catIds,
+                cursor.getRank(), cursor.getPropId(), page.getPageSize());
+
+        if (hits.isEmpty())
+            return Optional.of(new PropertyViewPage(List.of(), null));
+
+        Map<Long, PropertyEntity> propEntities = propertyRegRepository.findAllByIdInAndIsActiveTrueOrderByIdDesc(
+                        hits.stream().map(PropertySearchHit::getId).toList()).stream()
+                .collect(Collectors.toMap(PropertyEntity::getId, Function.identity()));
+
+        List<PropertyEntity> rankedEntities = hits.stream()
+                .map(hit -> propEntities.get(hit.getId()))
+                .filter(Objects::nonNull)
+                .toList();
+
+        /* A full page means there might be the next one */
+        PropertySearchHit lastHit = hits.get(hits.size() - 1);
+        String nextCursor = hits.size() < page.getPageSize()
+                ? null
+                : SearchCursor.encode(lastHit.getRank(), lastHit.getId());
+
+        return makePropertyViewPage(rankedEntities, nextCursor, lang, viewStamp, validator);
+    }
+
+    /*
+        Full-text search (web search syntax: words, "quoted phrase", or, -word) over the property texts,
+        optionally filtered by cc address and category type as the property list query.
+        Empty when the client has the current version of the page
+     */
+    public Optional<PropertyViewPage> searchViewProperties(String lang, String q, String cc, CategoryTypes pCatType,
+                                                           String after, Integer limit, ViewValidator validator) {
+        String query = validateSearchQuery(q);
+
+        if (Objects.isNull(cc))
+            return searchPropertyPage(lang, query, null, null, pCatType, after, limit, validator);
+
+        return queryByAddress(cc, lang, (countryId, cityId) ->
+                searchPropertyPage(lang, query, countryId, cityId, pCatType, after, limit, validator)
+        ).orElse(Optional.of(new PropertyViewPage(List.of(), null)));
+    }
+
+    /*
+        Suggests cc values of the typed prefix in the request language:
+        ?prefix=bel           -> ["Belarus", "Belgium"]
+        ?prefix=Belarus,mi    -> ["Belarus,Minsk", "Belarus,Mir"]
+     */
+    public List<String> suggestAddresses(String prefix, String lang) {
+        if (Strings.isBlank(prefix) || prefix.length() > SUGGEST_PREFIX_MAX_LENGTH)
+            throw new PropertyRegException(INVALID_SUGGEST_PREFIX);
 
-        }).orElse(List.of());
+        int cityPos = prefix.indexOf(',');
+
+        if (cityPos < 0) {
+            NameLookup countries = countryLookup(lang);
+
+            return countries.findIdsByPrefix(prefix, SUGGEST_SIZE).stream()
+                    .map(countries::findName)
+                    .toList();
+        }
+
+        Long countryId = findCountryId(prefix.substring(0, cityPos), lang);
+
+        if (Objects.isNull(countryId))
+            return List.of();
+
+        String countryName = countryLookup(lang).findName(countryId);
+        NameLookup cities = cityLookup(countryId, lang);
+
+        /* the country of the default language which is absent in the request language */
+        if (Objects.isNull(countryName))
+            countryName = countryLookup(null).findName(countryId);
+
+        String ccCountry = countryName + ",";
+
+        return cities.findIdsByPrefix(prefix.substring(cityPos + 1), SUGGEST_SIZE).stream()
+                .map(cityId -> ccCountry + cities.findName(cityId))
+                .toList();
+    }
+
+    private static List<PropertyFacetCount> makeFacetCounts(Map<Long, Integer> counts, NameLookup names) {
+        return counts.entrySet().stream()
+                .map(count -> new PropertyFacetCount(count.getKey(), names.findName(count.getKey()), count.getValue()))
+                .sorted(Comparator.comparing(PropertyFacetCount::getCount).reversed()
+                        .thenComparing(PropertyFacetCount::getId))
+                .toList();
+    }
+
+    private static Map<Long, Integer> toCounts(List<PropertyKeyCount> keyCounts) {
+        return keyCounts.stream()
+                .collect(Collectors.toMap(PropertyKeyCount::getId, c -> Math.toIntExact(c.getCount())));
+    }
+
+    /*
+        Counts of the property search index, they are kept up to date by the edits. Till the index is built
+        the counts are grouped by the database. The cities are counted for the country of cc (the city of cc
+        is not used), the categories are counted for all the properties
+     */
+    public PropertyFacets getViewFacets(String lang, String cc) {
+        boolean indexReady = propertySearchIndex.isReady();
+
+        List<PropertyFacetCount> countries = makeFacetCounts(indexReady
+                        ? propertySearchIndex.getCountryCounts()
+                        : toCounts(propertyRegRepository.countActiveByCountryId()),
+                countryLookup(lang));
+
+        List<PropertyFacetCount> cities = null;
+
+        if (Objects.nonNull(cc)) {
+            Long countryId = findCountryId(cc.split("\\,", -1)[COUNTRY_INDEX].trim(), lang);
+
+            cities = Objects.isNull(countryId)
+                    ? List.of()
+                    : makeFacetCounts(indexReady
+                            ? propertySearchIndex.getCityCounts(countryId)
+                            : toCounts(propertyRegRepository.countActiveByCityId(countryId)),
+                    cityLookup(countryId, lang));
+        }
+
+        Map<Long, CategoryTypes> categoryTypes = cachedCatalogBookClient.getPropertyTypes().stream()
+                .flatMap(t -> cachedCatalogBookClient.getPropertyCategories(t.getId()).stream())
+                .collect(Collectors.toMap(PropertyCategory::getId, PropertyCategory::getCategoryType, (t1, t2) -> t1));
+
+        Map<CategoryTypes, Integer> categories = new EnumMap<>(CategoryTypes.class);
+
+        Map<Long, Integer> categoryCounts = indexReady
+                ? propertySearchIndex.getCategoryCounts()
+                : toCounts(propertyRegRepository.countActiveByRefPropCatId());
+
+        categoryCounts.forEach((catId, count) -> {
+            CategoryTypes categoryType = categoryTypes.get(catId);
+
+            if (Objects.nonNull(categoryType))
+                categories.merge(categoryType, count, Integer::sum);
+        });
+
+        return new PropertyFacets(countries, cities, categories);
+    }
+
+    /* The properties of a query page and the cursor of the next page */
+    private static class EntityPage {
+
+        private final List<PropertyEntity> propEntities;
+
+        private final String nextCursor;
+
+        EntityPage(List<PropertyEntity> propEntities, String nextCursor) {
+            this.propEntities = propEntities;
+            this.nextCursor = nextCursor;
+        }
     }
 }
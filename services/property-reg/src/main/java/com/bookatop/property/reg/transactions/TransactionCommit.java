@@ -0,0 +1,29 @@
+package com.bookatop.property.reg.transactions;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+    In-memory structures (search index, caches) are changed after the transaction commit,
+    a rolled back change must not be visible for readers
+ */
+
+public class TransactionCommit {
+
+    private TransactionCommit() {
+    }
+
+    /* Out of a transaction the action runs immediately */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.bookatop.property.reg.validators;
+
+/*
+    Conditional request check of property edits. An edit is rejected when the client has read another
+    version of the property than the stored one, so concurrent edits do not overwrite each other
+ */
+
+@FunctionalInterface
+public interface EditValidator {
+
+    EditValidator NONE = versionTag -> true;
+
+    boolean isMatched(String versionTag);
+}
@@ -0,0 +1,14 @@
+package com.bookatop.property.reg.validators;
+
+/*
+    Conditional request check of property views. The views are not rendered when the client already
+    has the version of them (lastModified is -1 when the views have no modification time)
+ */
+
+@FunctionalInterface
+public interface ViewValidator {
+
+    ViewValidator NONE = (versionTag, lastModified) -> false;
+
+    boolean isNotModified(String versionTag, long lastModified);
+}
@@ -0,0 +1,36 @@
+package com.bookatop.property.reg.validators;
+
+import com.bookatop.property.reg.entity.PropertyEntity;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+/*
+    Version tags of property views. A property is tagged by its id and version, a page by the ids and
+    versions of its properties and by the next page cursor, so a page is changed by an edit, activation
+    or deactivation of any property of it
+ */
+
+public class ViewVersions {
+
+    private ViewVersions() {
+    }
+
+    public static String propertyTag(long propId, long version) {
+        return propId + "." + version;
+    }
+
+    public static String pageTag(List<PropertyEntity> propEntities, String nextCursor) {
+        StringBuilder pageVersions = new StringBuilder(propEntities.size() * 16);
+
+        for (PropertyEntity propEntity : propEntities)
+            pageVersions.append(propertyTag(propEntity.getId(), propEntity.getVersion())).append(',');
+
+        if (Objects.nonNull(nextCursor))
+            pageVersions.append(nextCursor);
+
+        return DigestUtils.md5DigestAsHex(pageVersions.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
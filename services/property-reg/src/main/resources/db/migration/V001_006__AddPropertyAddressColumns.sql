@@ -0,0 +1,26 @@
+create or replace function property_json_bigint(property_json varchar, json_path text[]) returns bigint as
+$$
+begin
+    return (property_json::jsonb #>> json_path)::bigint;
+exception
+    when others then return null;
+end;
+$$ language plpgsql immutable;
+
+alter table properties
+    add column if not exists country_id bigint null;
+alter table properties
+    add column if not exists city_id bigint null;
+
+update properties
+set country_id = property_json_bigint(property_json, '{hotelAboutData,address,country,id}'),
+    city_id    = property_json_bigint(property_json, '{hotelAboutData,address,city,id}');
+
+-- Public views read active properties only, inactive ones are seen by their owners through the edit endpoints
+create index if not exists properties_active_country_city_idx on properties (country_id, city_id, id desc) where is_active;
+
+create index if not exists user_properties_property_id_idx on user_properties (property_id);
+create index if not exists user_properties_category_idx on user_properties (ref_property_category_id);
+
+comment on column properties.country_id is 'Country id of the property address, copied from property_json';
+comment on column properties.city_id is 'City id of the property address, copied from property_json';
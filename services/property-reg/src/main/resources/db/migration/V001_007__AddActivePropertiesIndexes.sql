@@ -0,0 +1,3 @@
+-- Public views read active properties only, inactive ones are seen by their owners through the edit endpoints
+
+create index if not exists properties_active_id_idx on properties (id desc) where is_active;
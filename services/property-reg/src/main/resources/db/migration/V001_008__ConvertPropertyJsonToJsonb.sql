@@ -0,0 +1,21 @@
+-- Rows which are not valid JSON are kept as a JSON string of the former text
+create or replace function property_json_jsonb(property_json varchar) returns jsonb as
+$$
+begin
+    return property_json::jsonb;
+exception
+    when others then return to_jsonb(property_json);
+end;
+$$ language plpgsql immutable;
+
+alter table properties
+    alter column property_json type jsonb using property_json_jsonb(property_json);
+
+drop function if exists property_json_jsonb(varchar);
+drop function if exists property_json_bigint(varchar, text[]);
+
+-- Containment (@>) and JSON path (@?, @@) filters on any property JSON path of active properties,
+-- e.g. property_json @> '{"hotelAboutData":{"address":{"country":{"id":1}}}}'
+create index if not exists properties_active_json_idx on properties using gin (property_json jsonb_path_ops) where is_active;
+
+comment on column properties.property_json is 'JSON data of a property (jsonb)';
@@ -0,0 +1,12 @@
+-- Full-text search over the text fields of hotelAboutData, the property name has the highest weight.
+-- 'simple' configuration: property texts are in different languages, words are not stemmed
+alter table properties
+    add column if not exists search_vector tsvector
+        generated always as (
+            setweight(to_tsvector('simple', coalesce(property_json #>> '{hotelAboutData,propName}', '')), 'A') ||
+            setweight(jsonb_to_tsvector('simple', coalesce(property_json -> 'hotelAboutData', '{}'::jsonb), '["string"]'), 'B')
+        ) stored;
+
+create index if not exists properties_active_search_idx on properties using gin (search_vector) where is_active;
+
+comment on column properties.search_vector is 'Full-text search vector of hotelAboutData texts, maintained by the database on write';
@@ -0,0 +1,5 @@
+-- Every edit of a property is a new version, the version and modified_date are the validators of the property views
+
+alter table properties add column if not exists version bigint not null default 0;
+
+comment on column properties.version is 'Incremented by every edit of the property';
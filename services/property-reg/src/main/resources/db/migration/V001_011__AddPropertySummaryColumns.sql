@@ -0,0 +1,18 @@
+-- Summary of a property which lists show without property_json, written by every edit of the property
+
+alter table properties add column if not exists property_name varchar null;
+alter table properties add column if not exists image_url varchar null;
+
+-- Only the text (or number) fields are copied, a nested object or array is not a name or url
+update properties
+set property_name = case
+                        when jsonb_typeof(property_json #> '{hotelAboutData,propName}') in ('string', 'number', 'boolean')
+                            then property_json #>> '{hotelAboutData,propName}' end,
+    image_url     = case
+                        when jsonb_typeof(property_json #> '{hotelPhotosData,images,0,url}') in ('string', 'number', 'boolean')
+                            then property_json #>> '{hotelPhotosData,images,0,url}' end;
+
+create index if not exists user_properties_user_idx on user_properties (ref_user_id, property_id desc);
+
+comment on column properties.property_name is 'Property name, copied from property_json hotelAboutData.propName';
+comment on column properties.image_url is 'Main image url, copied from property_json hotelPhotosData.images[0].url';
@@ -0,0 +1,6 @@
+-- Hash of the canonical property_json, an update of the same content is not written
+
+alter table properties add column if not exists property_json_hash varchar(64) null;
+
+-- The canonical form is made by the service, a property without the hash is written by its next update
+comment on column properties.property_json_hash is 'SHA-256 of property_json with sorted keys and normalized numbers';
@@ -0,0 +1,152 @@
+package com.bookatop.property.reg.cache;
+
+import com.bookatop.catalog.book.api.enums.CategoryTypes;
+import com.bookatop.property.reg.clients.CachedCatalogBookClient;
+import com.bookatop.property.reg.repository.PropertyRegRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource("classpath:application.properties")
+class PropertyQueryCacheTest {
+
+    private static final long BELARUS_COUNTRY_ID = 1L;
+
+    private static final long MINSK_CITY_ID = 10L;
+
+    private static final long BREST_CITY_ID = 11L;
+
+    private static final long POLAND_COUNTRY_ID = 2L;
+
+    private static final PropertyQueryKey BELARUS_KEY =
+            new PropertyQueryKey("Belarus", null, "en", Long.MAX_VALUE, 20);
+
+    private static final PropertyQueryKey MINSK_KEY =
+            new PropertyQueryKey("Belarus,Minsk", null, "en", Long.MAX_VALUE, 20);
+
+    private static final PropertyQueryKey BREST_KEY =
+            new PropertyQueryKey("Belarus,Brest", CategoryTypes.HOTEL, "en", Long.MAX_VALUE, 20);
+
+    private static final PropertyQueryKey POLAND_KEY =
+            new PropertyQueryKey("Poland", null, "en", Long.MAX_VALUE, 20);
+
+    @MockBean
+    private PropertyRegRepository propertyRegRepository;
+
+    @MockBean
+    private CachedCatalogBookClient cachedCatalogBookClient;
+
+    @Autowired
+    private PropertyQueryCache propertyQueryCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void testBeforeEach() {
+        propertyQueryCache.evictAll();
+
+        long evictionStamp = propertyQueryCache.getEvictionStamp();
+
+        propertyQueryCache.putQueryResult(BELARUS_KEY,
+                new PropertyQueryResult(BELARUS_COUNTRY_ID, null, new long[]{1001L, 1000L}, null), evictionStamp);
+        propertyQueryCache.putQueryResult(MINSK_KEY,
+                new PropertyQueryResult(BELARUS_COUNTRY_ID, MINSK_CITY_ID, new long[]{1001L}, null), evictionStamp);
+        propertyQueryCache.putQueryResult(BREST_KEY,
+                new PropertyQueryResult(BELARUS_COUNTRY_ID, BREST_CITY_ID, new long[]{1000L}, null), evictionStamp);
+        propertyQueryCache.putQueryResult(POLAND_KEY,
+                new PropertyQueryResult(POLAND_COUNTRY_ID, null, new long[0], null), evictionStamp);
+    }
+
+    @Test
+    void testNormalizedKey() {
+        assertEquals(MINSK_KEY, new PropertyQueryKey("  BELARUS ,Mínsk.", null, "en", Long.MAX_VALUE, 20));
+        assertNotEquals(MINSK_KEY, new PropertyQueryKey("Belarus,Minsk", null, "ru", Long.MAX_VALUE, 20));
+        assertNotEquals(BELARUS_KEY, new PropertyQueryKey("Belarus,", null, "en", Long.MAX_VALUE, 20));
+
+        assertArrayEquals(new long[]{1001L}, propertyQueryCache.getQueryResult(
+                new PropertyQueryKey("belarus,minsk", null, "en", Long.MAX_VALUE, 20)).getPropIds());
+    }
+
+    @Test
+    void testEvictAddress() {
+        propertyQueryCache.evictAddress(BELARUS_COUNTRY_ID, MINSK_CITY_ID);
+
+        /* the city and its country pages, other cities and countries are kept */
+        assertNull(propertyQueryCache.getQueryResult(BELARUS_KEY));
+        assertNull(propertyQueryCache.getQueryResult(MINSK_KEY));
+        assertNotNull(propertyQueryCache.getQueryResult(BREST_KEY));
+        assertNotNull(propertyQueryCache.getQueryResult(POLAND_KEY));
+
+        /* the page cached again is indexed again */
+        propertyQueryCache.putQueryResult(MINSK_KEY,
+                new PropertyQueryResult(BELARUS_COUNTRY_ID, MINSK_CITY_ID, new long[]{1001L}, null),
+                propertyQueryCache.getEvictionStamp());
+        propertyQueryCache.evictAddress(BELARUS_COUNTRY_ID, MINSK_CITY_ID);
+
+        assertNull(propertyQueryCache.getQueryResult(MINSK_KEY));
+        assertNotNull(propertyQueryCache.getQueryResult(BREST_KEY));
+    }
+
+    @Test
+    void testEvictUnknownAddress() {
+        PropertyQueryKey typoKey = new PropertyQueryKey("Belarys", null, "en", Long.MAX_VALUE, 20);
+
+        propertyQueryCache.putQueryResult(typoKey, PropertyQueryResult.unknownAddress(),
+                propertyQueryCache.getEvictionStamp());
+        propertyQueryCache.evictAddress(BELARUS_COUNTRY_ID, BREST_CITY_ID);
+        propertyQueryCache.evictAddress(null, null);
+
+        /* an unknown address waits for its short expiration */
+        assertTrue(propertyQueryCache.getQueryResult(typoKey).isUnknownAddress());
+        assertNotNull(propertyQueryCache.getQueryResult(MINSK_KEY));
+    }
+
+    @Test
+    void testPutAfterEviction() {
+        long evictionStamp = propertyQueryCache.getEvictionStamp();
+
+        /* the page is read before the eviction and put after it */
+        propertyQueryCache.evictAddress(BELARUS_COUNTRY_ID, MINSK_CITY_ID);
+        propertyQueryCache.putQueryResult(MINSK_KEY,
+                new PropertyQueryResult(BELARUS_COUNTRY_ID, MINSK_CITY_ID, new long[]{1001L}, null), evictionStamp);
+
+        assertNull(propertyQueryCache.getQueryResult(MINSK_KEY));
+        assertNotNull(propertyQueryCache.getQueryResult(BREST_KEY));
+
+        propertyQueryCache.putQueryResult(MINSK_KEY,
+                new PropertyQueryResult(BELARUS_COUNTRY_ID, MINSK_CITY_ID, new long[]{1001L}, null),
+                propertyQueryCache.getEvictionStamp());
+
+        assertNotNull(propertyQueryCache.getQueryResult(MINSK_KEY));
+    }
+
+    @Test
+    void testEvictAddressAfterCommit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            propertyQueryCache.evictAddress(BELARUS_COUNTRY_ID, MINSK_CITY_ID);
+
+            /* not evicted till the commit */
+            assertNotNull(propertyQueryCache.getQueryResult(MINSK_KEY));
+        });
+
+        assertNull(propertyQueryCache.getQueryResult(MINSK_KEY));
+    }
+
+    @Test
+    void testEvictAddressAfterRollback() {
+        transactionTemplate.executeWithoutResult(status -> {
+            propertyQueryCache.evictAddress(BELARUS_COUNTRY_ID, MINSK_CITY_ID);
+            status.setRollbackOnly();
+        });
+
+        assertNotNull(propertyQueryCache.getQueryResult(MINSK_KEY));
+    }
+}
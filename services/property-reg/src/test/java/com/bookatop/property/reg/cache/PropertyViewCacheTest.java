@@ -0,0 +1,175 @@
+package com.bookatop.property.reg.cache;
+
+import com.bookatop.property.reg.api.enums.PropertyJsonType;
+import com.bookatop.property.reg.api.model.PropertyView;
+import com.bookatop.property.reg.clients.CachedCatalogBookClient;
+import com.bookatop.property.reg.exception.PropertyRegException;
+import com.bookatop.property.reg.repository.PropertyRegRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource("classpath:application.properties")
+class PropertyViewCacheTest {
+
+    private static final long PROPERTY_ID = 748L;
+
+    private static final long REF_PROP_CAT_ID = 222345L;
+
+    @MockBean
+    private PropertyRegRepository propertyRegRepository;
+
+    @MockBean
+    private CachedCatalogBookClient cachedCatalogBookClient;
+
+    @Autowired
+    private PropertyViewCache propertyViewCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicInteger renderCount = new AtomicInteger();
+
+    private PropertyView renderPropertyView() {
+        renderCount.incrementAndGet();
+        return new PropertyView(PROPERTY_ID, null, PropertyJsonType.HOTEL_JSON, REF_PROP_CAT_ID);
+    }
+
+    @BeforeEach
+    void testBeforeEach() {
+        propertyViewCache.evictAll();
+        renderCount.set(0);
+    }
+
+    @Test
+    void testCachedView() {
+        PropertyView propertyView = propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+
+        assertSame(propertyView, propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView));
+        assertEquals(1, renderCount.get());
+
+        propertyViewCache.getPropertyView(PROPERTY_ID, null, this::renderPropertyView);
+        assertEquals(2, renderCount.get());
+    }
+
+    @Test
+    void testFailedViewIsNotCached() {
+        assertThrows(PropertyRegException.class, () -> propertyViewCache.getPropertyView(PROPERTY_ID, "en", () -> {
+            throw new PropertyRegException("Unsupported JSON type");
+        }));
+
+        /* no empty entry of the property is left */
+        assertEquals(0.0, meterRegistry.get("cache.size").tag("cache", "propertyViews").gauge().value());
+
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+        assertEquals(1, renderCount.get());
+    }
+
+    @Test
+    void testLanguagesOfProperty() {
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+        propertyViewCache.getPropertyView(PROPERTY_ID, "ru", this::renderPropertyView);
+        propertyViewCache.getPropertyView(PROPERTY_ID, null, this::renderPropertyView);
+        propertyViewCache.getPropertyView(PROPERTY_ID, null, this::renderPropertyView);
+
+        /* the languages are rendered one by one, the property is a single entry */
+        assertEquals(3, renderCount.get());
+        assertEquals(1.0, meterRegistry.get("cache.size").tag("cache", "propertyViews").gauge().value());
+    }
+
+    @Test
+    void testEvictProperty() {
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+        propertyViewCache.getPropertyView(PROPERTY_ID, "ru", this::renderPropertyView);
+        propertyViewCache.getPropertyView(PROPERTY_ID + 1, "en", this::renderPropertyView);
+
+        propertyViewCache.evictProperty(PROPERTY_ID);
+
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+        propertyViewCache.getPropertyView(PROPERTY_ID, "ru", this::renderPropertyView);
+        propertyViewCache.getPropertyView(PROPERTY_ID + 1, "en", this::renderPropertyView);
+
+        /* both languages of the property are rendered again, another property is kept */
+        assertEquals(5, renderCount.get());
+    }
+
+    @Test
+    void testViewRenderedBeforeEviction() {
+        long evictionStamp = propertyViewCache.getEvictionStamp();
+
+        /* the property is read, then edited and evicted before its view is cached */
+        propertyViewCache.evictProperty(PROPERTY_ID);
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", evictionStamp, this::renderPropertyView);
+
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+        assertEquals(2, renderCount.get());
+
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+        assertEquals(2, renderCount.get());
+    }
+
+    @Test
+    void testRenderOutOfCacheLock() {
+        /* a render which reads the cache does not deadlock, the first cached view is returned */
+        PropertyView propertyView = propertyViewCache.getPropertyView(PROPERTY_ID, "en",
+                () -> propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView));
+
+        assertSame(propertyView, propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView));
+        assertEquals(1, renderCount.get());
+    }
+
+    @Test
+    void testEvictPropertyAfterCommit() {
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            propertyViewCache.evictProperty(PROPERTY_ID);
+
+            /* not evicted till the commit */
+            propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+            assertEquals(1, renderCount.get());
+        });
+
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+        assertEquals(2, renderCount.get());
+    }
+
+    @Test
+    void testEvictPropertyAfterRollback() {
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            propertyViewCache.evictProperty(PROPERTY_ID);
+            status.setRollbackOnly();
+        });
+
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+        assertEquals(1, renderCount.get());
+    }
+
+    @Test
+    void testCacheMetrics() {
+        double hitCount = meterRegistry.get("cache.gets").tag("cache", "propertyViews").tag("result", "hit")
+                .functionCounter().count();
+
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+        propertyViewCache.getPropertyView(PROPERTY_ID, "en", this::renderPropertyView);
+
+        assertEquals(hitCount + 1, meterRegistry.get("cache.gets").tag("cache", "propertyViews").tag("result", "hit")
+                .functionCounter().count());
+        assertNotNull(meterRegistry.get("cache.evictions").tag("cache", "propertyViews").functionCounter());
+    }
+}
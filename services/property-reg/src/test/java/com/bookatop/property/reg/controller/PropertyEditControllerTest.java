@@ -3,12 +3,16 @@ package com.bookatop.property.reg.controller;
 import com.bookatop.catalog.book.api.enums.CategoryTypes;
 import com.bookatop.property.reg.api.enums.PropertyJsonType;
 import com.bookatop.property.reg.config.SpringTestConfig;
+import com.bookatop.property.reg.entity.PropertyEntity;
 import com.bookatop.property.reg.exception.PropertyRegException;
+import com.bookatop.property.reg.exception.PropertyVersionException;
+import com.bookatop.property.reg.model.PropertyActiveResult;
 import com.bookatop.property.reg.model.PropertyEditView;
 import com.bookatop.property.reg.model.PropertyResponse;
 import com.bookatop.property.reg.model.PropertyUpdate;
 import com.bookatop.property.reg.model.WithImplSensitiveContactData;
 import com.bookatop.property.reg.service.PropertyEditService;
+import com.bookatop.property.reg.validators.EditValidator;
 import com.bookatop.security.enums.UserRoles;
 import com.bookatop.security.request.GatewayHeaders;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -21,12 +25,16 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.*;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.util.List;
 import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -50,6 +58,12 @@ class PropertyEditControllerTest {
 
     private static final String CUSTOM_PROPERTY_REG_DEACTIVATE = "/property-reg/edit/748456/deactivate";
 
+    private static final String CUSTOM_PROPERTY_REG_BATCH_ACTIVATE = "/property-reg/edit/activate";
+
+    private static final String CUSTOM_PROPERTY_REG_BATCH_DEACTIVATE = "/property-reg/edit/deactivate";
+
+    private static final String CUSTOM_PROPERTY_REG_PATCH = "/property-reg/edit/748456";
+
     private static final String CUSTOM_PROPERTY_REG_EDIT_VIEW = "/property-reg/edit/list/748456";
 
     @Autowired
@@ -81,6 +95,26 @@ class PropertyEditControllerTest {
         return restTemplate.postForEntity(url, httpEntity, responseType);
     }
 
+    private <T, R> ResponseEntity<R> postEditRequest(String url, T body, String ifMatch, Class<R> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(GatewayHeaders.ROLES, UserRoles.USER.name());
+        headers.add(GatewayHeaders.UID, String.valueOf(REF_USER_ID));
+        headers.setIfMatch(ifMatch);
+
+        HttpEntity<Object> httpEntity = new HttpEntity<>(body, headers);
+        return restTemplate.postForEntity(url, httpEntity, responseType);
+    }
+
+    private <R> ResponseEntity<R> patchEditRequest(String url, String body, String contentType, Class<R> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(GatewayHeaders.ROLES, UserRoles.USER.name());
+        headers.add(GatewayHeaders.UID, String.valueOf(REF_USER_ID));
+        headers.setContentType(MediaType.parseMediaType(contentType));
+
+        HttpEntity<Object> httpEntity = new HttpEntity<>(body, headers);
+        return restTemplate.exchange(url, HttpMethod.PATCH, httpEntity, responseType);
+    }
+
     @BeforeEach
     void beforeEach() {
         propUpdate = new PropertyUpdate(VALID_PROP_JSON, VALID_PROP_JSON_TYPE, REF_PROP_CAT_ID, CategoryTypes.HOTEL);
@@ -95,7 +129,7 @@ class PropertyEditControllerTest {
                 Objects.requireNonNull(response.getBody()).getMessage());
 
         verify(propertyEditService, times(1))
-                .activeProperty(REF_USER_ID, PROPERTY_ID, true);
+                .activeProperty(eq(REF_USER_ID), eq(PROPERTY_ID), eq(true), any());
     }
 
     @Test
@@ -107,13 +141,13 @@ class PropertyEditControllerTest {
                 Objects.requireNonNull(response.getBody()).getMessage());
 
         verify(propertyEditService, times(1))
-                .activeProperty(REF_USER_ID, PROPERTY_ID, false);
+                .activeProperty(eq(REF_USER_ID), eq(PROPERTY_ID), eq(false), any());
     }
 
     @Test
     void testActivatePropertyException() {
         doThrow(PropertyRegException.class).when(propertyEditService)
-                .activeProperty(anyLong(), anyLong(), any());
+                .activeProperty(anyLong(), anyLong(), any(), any());
 
         ResponseEntity<PropertyResponse> response =
                 postEditRequest(CUSTOM_PROPERTY_REG_ACTIVATE, null, PropertyResponse.class);
@@ -124,7 +158,7 @@ class PropertyEditControllerTest {
     @Test
     void testDeactivatePropertyException() {
         doThrow(PropertyRegException.class).when(propertyEditService)
-                .activeProperty(anyLong(), anyLong(), any());
+                .activeProperty(anyLong(), anyLong(), any(), any());
 
         ResponseEntity<PropertyResponse> response =
                 postEditRequest(CUSTOM_PROPERTY_REG_DEACTIVATE, null, PropertyResponse.class);
@@ -186,21 +220,157 @@ class PropertyEditControllerTest {
                     assertEquals(VALID_PROP_JSON, v.getPropJson());
                     assertEquals(VALID_PROP_JSON_TYPE, v.getPropJsonType());
                     return true;
-                }));
+                }), any());
     }
 
     @Test
     void testUpdatePropertyException() {
         doThrow(PropertyRegException.class).when(propertyEditService)
-                .updateProperty(eq(REF_USER_ID), eq(PROPERTY_ID), any());
+                .updateProperty(eq(REF_USER_ID), eq(PROPERTY_ID), any(), any());
 
         ResponseEntity<PropertyResponse> response =
                 postEditRequest(CUSTOM_PROPERTY_REG_UPDATE, propUpdate, PropertyResponse.class);
 
         verify(propertyEditService, times(1))
-                .updateProperty(eq(REF_USER_ID), eq(PROPERTY_ID), any());
+                .updateProperty(eq(REF_USER_ID), eq(PROPERTY_ID), any(), any());
+
+        assertEquals(HttpStatus.METHOD_NOT_ALLOWED, response.getStatusCode());
+    }
+
+    @Test
+    void testActivateProperties() {
+        when(propertyEditService.activeProperties(REF_USER_ID, List.of(PROPERTY_ID, PROPERTY_ID + 1), true))
+                .thenReturn(List.of(
+                        new PropertyActiveResult(PROPERTY_ID, true, null),
+                        new PropertyActiveResult(PROPERTY_ID + 1, null, "Property is absent")));
+
+        ResponseEntity<PropertyActiveResult[]> response = postEditRequest(CUSTOM_PROPERTY_REG_BATCH_ACTIVATE,
+                List.of(PROPERTY_ID, PROPERTY_ID + 1), PropertyActiveResult[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        PropertyActiveResult[] results = Objects.requireNonNull(response.getBody());
+
+        assertEquals(2, results.length);
+        assertEquals(true, results[0].getIsActive());
+        assertEquals("Property is absent", results[1].getMessage());
+    }
+
+    @Test
+    void testDeactivateProperties() {
+        postEditRequest(CUSTOM_PROPERTY_REG_BATCH_DEACTIVATE, List.of(PROPERTY_ID), PropertyActiveResult[].class);
+
+        verify(propertyEditService, times(1)).activeProperties(REF_USER_ID, List.of(PROPERTY_ID), false);
+        verify(propertyEditService, never()).activeProperty(anyLong(), anyLong(), any(), any());
+    }
+
+    @Test
+    void testActivatePropertiesException() {
+        when(propertyEditService.activeProperties(anyLong(), any(), any())).thenThrow(PropertyRegException.class);
+
+        ResponseEntity<PropertyResponse> response =
+                postEditRequest(CUSTOM_PROPERTY_REG_BATCH_ACTIVATE, List.of(), PropertyResponse.class);
 
         assertEquals(HttpStatus.METHOD_NOT_ALLOWED, response.getStatusCode());
     }
 
+    @Test
+    void testMergePatchProperty() throws JsonProcessingException {
+        String patch = "{\"hotelAboutData\":{\"propName\":\"Europe\"}}";
+
+        ResponseEntity<PropertyResponse> response = patchEditRequest(CUSTOM_PROPERTY_REG_PATCH, patch,
+                PropertyEditController.MERGE_PATCH_JSON_VALUE, PropertyResponse.class);
+
+        assertEquals(PropertyEditController.PROPERTY_UPDATED, Objects.requireNonNull(response.getBody()).getMessage());
+
+        verify(propertyEditService, times(1))
+                .patchProperty(eq(REF_USER_ID), eq(PROPERTY_ID), eq(objectMapper.readTree(patch)), eq(false), any());
+    }
+
+    @Test
+    void testJsonPatchProperty() throws JsonProcessingException {
+        String patch = "[{\"op\":\"remove\",\"path\":\"/hotelAboutData/propName\"}]";
+
+        ResponseEntity<PropertyResponse> response = patchEditRequest(CUSTOM_PROPERTY_REG_PATCH, patch,
+                PropertyEditController.JSON_PATCH_JSON_VALUE, PropertyResponse.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        verify(propertyEditService, times(1))
+                .patchProperty(eq(REF_USER_ID), eq(PROPERTY_ID), eq(objectMapper.readTree(patch)), eq(true), any());
+    }
+
+    @Test
+    void testPatchPropertyException() {
+        doThrow(PropertyRegException.class).when(propertyEditService)
+                .patchProperty(anyLong(), anyLong(), any(), anyBoolean(), any());
+
+        ResponseEntity<PropertyResponse> response = patchEditRequest(CUSTOM_PROPERTY_REG_PATCH, "[]",
+                PropertyEditController.JSON_PATCH_JSON_VALUE, PropertyResponse.class);
+
+        assertEquals(HttpStatus.METHOD_NOT_ALLOWED, response.getStatusCode());
+    }
+
+    @Test
+    void testPatchUnsupportedMediaType() {
+        ResponseEntity<PropertyResponse> response = patchEditRequest(CUSTOM_PROPERTY_REG_PATCH, "{}",
+                MediaType.APPLICATION_JSON_VALUE, PropertyResponse.class);
+
+        assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, response.getStatusCode());
+
+        verifyNoInteractions(propertyEditService);
+    }
+
+    @Test
+    void testEditPropertyETag() {
+        PropertyEditView propertyEditView =
+                new PropertyEditView("{}", PropertyJsonType.HOTEL_JSON, REF_PROP_CAT_ID, CategoryTypes.HOTEL);
+        propertyEditView.setVersion(3L);
+
+        when(propertyEditService.getEditProperty(eq(REF_USER_ID), eq(PROPERTY_ID), any())).thenReturn(propertyEditView);
+
+        ResponseEntity<String> response = getEditRequest(CUSTOM_PROPERTY_REG_EDIT_VIEW, String.class);
+
+        assertEquals("\"748456.3\"", response.getHeaders().getETag());
+        assertFalse(Objects.requireNonNull(response.getBody()).contains("version"));
+    }
+
+    @Test
+    void testUpdatePropertyIfMatch() {
+        /* the stored version is 3, the edit makes version 4 */
+        when(propertyEditService.updateProperty(eq(REF_USER_ID), eq(PROPERTY_ID), any(), any())).thenAnswer(invocation -> {
+            if (!invocation.getArgument(3, EditValidator.class).isMatched("748456.3"))
+                throw new PropertyVersionException("Property is changed by another edit");
+            return 4L;
+        });
+
+        ResponseEntity<PropertyResponse> response =
+                postEditRequest(CUSTOM_PROPERTY_REG_UPDATE, propUpdate, "W/\"748456.2\", \"748456.3\"", PropertyResponse.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"748456.4\"", response.getHeaders().getETag());
+
+        response = postEditRequest(CUSTOM_PROPERTY_REG_UPDATE, propUpdate, "*", PropertyResponse.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        response = postEditRequest(CUSTOM_PROPERTY_REG_UPDATE, propUpdate, "W/\"748456.3\"", PropertyResponse.class);
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatusCode());
+
+        response = postEditRequest(CUSTOM_PROPERTY_REG_UPDATE, propUpdate, "\"748456.2\"", PropertyResponse.class);
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatusCode());
+    }
+
+    @Test
+    void testActivatePropertyConcurrentEdit() {
+        doThrow(new ObjectOptimisticLockingFailureException(PropertyEntity.class, PROPERTY_ID))
+                .when(propertyEditService).activeProperty(anyLong(), anyLong(), any(), any());
+
+        ResponseEntity<PropertyResponse> response =
+                postEditRequest(CUSTOM_PROPERTY_REG_ACTIVATE, null, PropertyResponse.class);
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatusCode());
+    }
 }
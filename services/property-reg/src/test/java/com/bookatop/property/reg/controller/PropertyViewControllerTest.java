@@ -8,12 +8,17 @@ import com.bookatop.property.reg.exception.PropertyRegException;
 import com.bookatop.property.reg.model.ErrorResponse;
 import com.bookatop.property.reg.model.PropertyAdd;
 import com.bookatop.property.reg.model.PropertyEditView;
+import com.bookatop.property.reg.model.PropertyFacetCount;
+import com.bookatop.property.reg.model.PropertyFacets;
+import com.bookatop.property.reg.model.PropertyViewPage;
 import com.bookatop.property.reg.model.WithImplSensitiveContactData;
 import com.bookatop.property.reg.service.PropertyViewService;
+import com.bookatop.property.reg.validators.ViewValidator;
 import com.bookatop.security.enums.UserRoles;
 import com.bookatop.security.request.GatewayHeaders;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -22,10 +27,13 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.*;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -70,6 +78,16 @@ class PropertyViewControllerTest {
         return getViewRequest(url, UserRoles.USER, responseType);
     }
 
+    @BeforeEach
+    void beforeEach() {
+        when(propertyViewService.getViewProperties(any(), any(), any(), any()))
+                .thenReturn(Optional.of(new PropertyViewPage(List.of(), null)));
+        when(propertyViewService.queryViewProperties(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.of(new PropertyViewPage(List.of(), null)));
+        when(propertyViewService.searchViewProperties(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.of(new PropertyViewPage(List.of(), null)));
+    }
+
     @Test
     void testPropertiesStatus() {
         ResponseEntity<PropertyAdd[]> response =
@@ -82,7 +100,70 @@ class PropertyViewControllerTest {
     void testPropertiesCall() {
         getViewRequest(PROPERTY_REG_LIST, PropertyAdd[].class);
 
-        verify(propertyViewService, times(1)).getViewProperties(any());
+        verify(propertyViewService, times(1)).getViewProperties(any(), any(), any(), any());
+    }
+
+    @Test
+    void testPropertiesPage() {
+        PropertyView propertyView =
+                new PropertyView(PROPERTY_ID, VALID_PROP_JSON, VALID_PROP_JSON_TYPE, REF_PROP_CAT_ID);
+
+        when(propertyViewService.getViewProperties(eq(DEF_LANG_ABBREVIATION), eq("NzQ4"), eq(1), any()))
+                .thenReturn(Optional.of(new PropertyViewPage(List.of(propertyView), "NzQ3")));
+
+        ResponseEntity<PropertyView[]> response =
+                getViewRequest(PROPERTY_REG_LIST + "?lang=" + DEF_LANG_ABBREVIATION + "&after=NzQ4&limit=1",
+                        PropertyView[].class);
+
+        verify(propertyViewService, times(1)).getViewProperties(eq(DEF_LANG_ABBREVIATION), eq("NzQ4"), eq(1), any());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, Objects.requireNonNull(response.getBody()).length);
+        assertEquals("NzQ3", response.getHeaders().getFirst(PropertyViewController.NEXT_CURSOR));
+    }
+
+    @Test
+    void testPropertiesLastPage() {
+        ResponseEntity<PropertyView[]> response = getViewRequest(PROPERTY_REG_LIST, PropertyView[].class);
+
+        assertFalse(response.getHeaders().containsKey(PropertyViewController.NEXT_CURSOR));
+    }
+
+    @Test
+    void testQueryPropertyViewPage() {
+        getViewRequest("/property-reg/view/list?cc=Belarus,Minsk&after=NzQ4&limit=10", PropertyView[].class);
+
+        verify(propertyViewService, times(1))
+                .queryViewProperties(isNull(), eq("Belarus,Minsk"), isNull(), eq("NzQ4"), eq(10), any());
+    }
+
+    @Test
+    void testStreamProperties() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+
+        ResponseEntity<String> response = restTemplate.exchange(PROPERTY_REG_LIST + "?lang=" + DEF_LANG_ABBREVIATION,
+                HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        verify(propertyViewService, times(1)).streamViewProperties(eq(DEF_LANG_ABBREVIATION), any());
+        verify(propertyViewService, never()).getViewProperties(any(), any(), any(), any());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(MediaType.APPLICATION_NDJSON.isCompatibleWith(response.getHeaders().getContentType()));
+    }
+
+    @Test
+    void testPropertiesDefaultMediaType() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.ALL));
+
+        ResponseEntity<String> response = restTemplate.exchange(PROPERTY_REG_LIST, HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+
+        verify(propertyViewService, times(1)).getViewProperties(any(), any(), any(), any());
+        verify(propertyViewService, never()).streamViewProperties(any(), any());
+
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(response.getHeaders().getContentType()));
     }
 
     @Test
@@ -98,13 +179,13 @@ class PropertyViewControllerTest {
         PropertyView propertyView =
                 new PropertyView(PROPERTY_ID, VALID_PROP_JSON, VALID_PROP_JSON_TYPE, REF_PROP_CAT_ID);
 
-        when(propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION))
-                .thenReturn(propertyView);
+        when(propertyViewService.getViewProperty(eq(PROPERTY_ID), eq(DEF_LANG_ABBREVIATION), any()))
+                .thenReturn(Optional.of(propertyView));
 
         ResponseEntity<PropertyView> response =
                 getViewRequest("/property-reg/view/list/748?lang=" + DEF_LANG_ABBREVIATION, PropertyView.class);
 
-        verify(propertyViewService, times(1)).getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION);
+        verify(propertyViewService, times(1)).getViewProperty(eq(PROPERTY_ID), eq(DEF_LANG_ABBREVIATION), any());
 
         PropertyView body = response.getBody();
         assertTrue(Objects.nonNull(body));
@@ -126,13 +207,13 @@ class PropertyViewControllerTest {
         PropertyView propertyView =
                 new PropertyView(PROPERTY_ID, sensitiveData, PropertyJsonType.HOTEL_JSON, REF_PROP_CAT_ID);
 
-        when(propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION))
-                .thenReturn(propertyView);
+        when(propertyViewService.getViewProperty(eq(PROPERTY_ID), eq(DEF_LANG_ABBREVIATION), any()))
+                .thenReturn(Optional.of(propertyView));
 
         ResponseEntity<PropertyView> response =
                 getViewRequest("/property-reg/view/list/748?lang=" + DEF_LANG_ABBREVIATION, PropertyView.class);
 
-        verify(propertyViewService, times(1)).getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION);
+        verify(propertyViewService, times(1)).getViewProperty(eq(PROPERTY_ID), eq(DEF_LANG_ABBREVIATION), any());
 
         PropertyView body = response.getBody();
         assertTrue(Objects.nonNull(body));
@@ -146,13 +227,13 @@ class PropertyViewControllerTest {
     @Test
     void testListPropertyViewException() {
         doThrow(PropertyRegException.class).when(propertyViewService)
-                .getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION);
+                .getViewProperty(eq(PROPERTY_ID), eq(DEF_LANG_ABBREVIATION), any());
 
         ResponseEntity<PropertyView> response =
                 getViewRequest("/property-reg/view/list/748?lang=" + DEF_LANG_ABBREVIATION, PropertyView.class);
 
         verify(propertyViewService, times(1))
-                .getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION);
+                .getViewProperty(eq(PROPERTY_ID), eq(DEF_LANG_ABBREVIATION), any());
 
         assertEquals(HttpStatus.METHOD_NOT_ALLOWED, response.getStatusCode());
     }
@@ -163,7 +244,7 @@ class PropertyViewControllerTest {
                 getViewRequest("/property-reg/view/list?lang=" + DEF_LANG_ABBREVIATION + "&cc=Belarus,Minsk", PropertyView[].class);
 
         verify(propertyViewService, times(1))
-                .queryViewProperties(DEF_LANG_ABBREVIATION, "Belarus,Minsk", null);
+                .queryViewProperties(eq(DEF_LANG_ABBREVIATION), eq("Belarus,Minsk"), isNull(), isNull(), isNull(), any());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
     }
@@ -174,7 +255,7 @@ class PropertyViewControllerTest {
                 getViewRequest("/property-reg/view/list?lang=" + DEF_LANG_ABBREVIATION + "&cc=Belarus,Minsk&pcat_type=hotel", PropertyView[].class);
 
         verify(propertyViewService, times(1))
-                .queryViewProperties(DEF_LANG_ABBREVIATION, "Belarus,Minsk", CategoryTypes.HOTEL);
+                .queryViewProperties(eq(DEF_LANG_ABBREVIATION), eq("Belarus,Minsk"), eq(CategoryTypes.HOTEL), isNull(), isNull(), any());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
     }
@@ -185,7 +266,7 @@ class PropertyViewControllerTest {
                 getViewRequest("/property-reg/view/list?cc=Belarus,Minsk", PropertyView[].class);
 
         verify(propertyViewService, times(1))
-                .queryViewProperties(null, "Belarus,Minsk", null);
+                .queryViewProperties(isNull(), eq("Belarus,Minsk"), isNull(), isNull(), isNull(), any());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
     }
@@ -193,14 +274,141 @@ class PropertyViewControllerTest {
     @Test
     void testQueryPropertyViewException() {
         doThrow(PropertyRegException.class).when(propertyViewService)
-                .queryViewProperties(any(), any(), any());
+                .queryViewProperties(any(), any(), any(), any(), any(), any());
 
         ResponseEntity<ErrorResponse> response =
                 getViewRequest("/property-reg/view/list?lang=" + DEF_LANG_ABBREVIATION + "&cc=Belarus,Minsk", ErrorResponse.class);
 
         verify(propertyViewService, times(1))
-                .queryViewProperties(DEF_LANG_ABBREVIATION, "Belarus,Minsk", null);
+                .queryViewProperties(eq(DEF_LANG_ABBREVIATION), eq("Belarus,Minsk"), isNull(), isNull(), isNull(), any());
+
+        assertEquals(HttpStatus.METHOD_NOT_ALLOWED, response.getStatusCode());
+    }
+
+    @Test
+    void testSearchPropertyView() {
+        ResponseEntity<PropertyView[]> response =
+                getViewRequest("/property-reg/view/search?q=sea view&cc=Belarus&pcat_type=hotel&after=MC41OjQ4&limit=10",
+                        PropertyView[].class);
+
+        verify(propertyViewService, times(1))
+                .searchViewProperties(isNull(), eq("sea view"), eq("Belarus"), eq(CategoryTypes.HOTEL), eq("MC41OjQ4"), eq(10), any());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    void testSearchPropertyViewException() {
+        doThrow(PropertyRegException.class).when(propertyViewService)
+                .searchViewProperties(any(), any(), any(), any(), any(), any(), any());
+
+        ResponseEntity<ErrorResponse> response =
+                getViewRequest("/property-reg/view/search?q=", ErrorResponse.class);
 
         assertEquals(HttpStatus.METHOD_NOT_ALLOWED, response.getStatusCode());
     }
+
+    @Test
+    void testSuggestAddresses() {
+        when(propertyViewService.suggestAddresses("Belarus,Mi", null)).thenReturn(List.of("Belarus,Minsk"));
+
+        ResponseEntity<String[]> response =
+                getViewRequest("/property-reg/view/suggest?prefix=Belarus,Mi", String[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertArrayEquals(new String[]{"Belarus,Minsk"}, response.getBody());
+    }
+
+    /* No role is an anonymous request */
+    private ResponseEntity<PropertyView> getConditionalViewRequest(UserRoles userRole, String headerName, String headerValue) {
+        HttpHeaders headers = new HttpHeaders();
+
+        if (Objects.nonNull(userRole)) {
+            headers.add(GatewayHeaders.ROLES, userRole.name());
+            headers.add(GatewayHeaders.UID, String.valueOf(REF_USER_ID));
+        }
+
+        if (Objects.nonNull(headerName))
+            headers.add(headerName, headerValue);
+
+        return restTemplate.exchange(CUSTOM_PROPERTY_REG_VIEW + "?lang=" + DEF_LANG_ABBREVIATION,
+                HttpMethod.GET, new HttpEntity<>(headers), PropertyView.class);
+    }
+
+    @Test
+    void testConditionalPropertyView() {
+        PropertyView propertyView =
+                new PropertyView(PROPERTY_ID, VALID_PROP_JSON, VALID_PROP_JSON_TYPE, REF_PROP_CAT_ID);
+
+        long modifiedDate = 1685613600000L;
+
+        when(propertyViewService.getViewProperty(eq(PROPERTY_ID), eq(DEF_LANG_ABBREVIATION), any()))
+                .thenAnswer(invocation -> invocation.<ViewValidator>getArgument(2).isNotModified("748.3", modifiedDate)
+                        ? Optional.empty()
+                        : Optional.of(propertyView));
+
+        ResponseEntity<PropertyView> response = getConditionalViewRequest(UserRoles.USER, null, null);
+
+        String eTag = response.getHeaders().getETag();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(eTag);
+        assertFalse(eTag.startsWith("W/"));
+        assertEquals(modifiedDate, response.getHeaders().getLastModified());
+
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                getConditionalViewRequest(UserRoles.USER, HttpHeaders.IF_NONE_MATCH, eTag).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                getConditionalViewRequest(UserRoles.USER, HttpHeaders.IF_MODIFIED_SINCE,
+                        response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED)).getStatusCode());
+
+        /* the views of other roles are serialized in other way (sensitive data) */
+        ResponseEntity<PropertyView> anonymousResponse =
+                getConditionalViewRequest(null, HttpHeaders.IF_NONE_MATCH, eTag);
+
+        assertEquals(HttpStatus.OK, anonymousResponse.getStatusCode());
+        assertNotEquals(eTag, anonymousResponse.getHeaders().getETag());
+    }
+
+    @Test
+    void testConditionalPropertiesPage() {
+        when(propertyViewService.getViewProperties(any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<ViewValidator>getArgument(3).isNotModified("b1946ac92492d2347c6235b4d2611184", -1)
+                        ? Optional.empty()
+                        : Optional.of(new PropertyViewPage(List.of(), null)));
+
+        ResponseEntity<PropertyView[]> response = getViewRequest(PROPERTY_REG_LIST, PropertyView[].class);
+
+        String eTag = response.getHeaders().getETag();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(eTag);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(GatewayHeaders.ROLES, UserRoles.USER.name());
+        headers.add(HttpHeaders.IF_NONE_MATCH, eTag);
+
+        ResponseEntity<PropertyView[]> notModifiedResponse = restTemplate.exchange(PROPERTY_REG_LIST,
+                HttpMethod.GET, new HttpEntity<>(headers), PropertyView[].class);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, notModifiedResponse.getStatusCode());
+        assertNull(notModifiedResponse.getBody());
+    }
+
+    @Test
+    void testViewFacets() {
+        PropertyFacets facets = new PropertyFacets(
+                List.of(new PropertyFacetCount(1L, "Belarus", 3)),
+                null,
+                Map.of(CategoryTypes.HOTEL, 3));
+
+        when(propertyViewService.getViewFacets(DEF_LANG_ABBREVIATION, null)).thenReturn(facets);
+
+        ResponseEntity<PropertyFacets> response =
+                getViewRequest("/property-reg/view/facets?lang=" + DEF_LANG_ABBREVIATION, PropertyFacets.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Belarus", Objects.requireNonNull(response.getBody()).getCountries().get(0).getName());
+        assertEquals(3, response.getBody().getCategories().get(CategoryTypes.HOTEL));
+    }
 }
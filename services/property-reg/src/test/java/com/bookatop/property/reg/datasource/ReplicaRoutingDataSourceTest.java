@@ -0,0 +1,120 @@
+package com.bookatop.property.reg.datasource;
+
+import com.bookatop.property.reg.clients.CachedCatalogBookClient;
+import com.bookatop.property.reg.index.PropertySearchIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    The replica is an in-memory database with a marker table which the primary does not have,
+    the replica lag is read from a table of the replica
+ */
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(locations = "classpath:application.properties", properties = {
+        "property.replica.datasource.url=" + ReplicaRoutingDataSourceTest.REPLICA_URL,
+        "property.replica.datasource.username=sa",
+        "property.replica.datasource.password=",
+        "property.replica.lag.query=select max(lag_seconds) from replica_lag",
+        "property.replica.lag.max.seconds=5"
+})
+class ReplicaRoutingDataSourceTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:property-replica;DB_CLOSE_DELAY=-1";
+
+    private static final String REPLICA_QUERY = "select count(*) from replica_marker";
+
+    /* The index is built by a read-only transaction, the replica has no properties table */
+    @MockBean
+    private PropertySearchIndex propertySearchIndex;
+
+    @MockBean
+    private CachedCatalogBookClient cachedCatalogBookClient;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReplicaPool replicaPool;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final JdbcTemplate replicaAdminTemplate = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    private void setReplicaLag(double lagSeconds) {
+        replicaAdminTemplate.update("delete from replica_lag");
+        replicaAdminTemplate.update("insert into replica_lag (lag_seconds) values (?)", lagSeconds);
+        replicaPool.checkLag();
+    }
+
+    private Integer queryMarker(boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+
+        return transactionTemplate.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject(REPLICA_QUERY, Integer.class));
+    }
+
+    @BeforeEach
+    void testBeforeEach() {
+        replicaAdminTemplate.execute("create table if not exists replica_marker (id int)");
+        replicaAdminTemplate.execute("create table if not exists replica_lag (lag_seconds double precision)");
+
+        setReplicaLag(0);
+    }
+
+    @Test
+    void testReadOnlyTransactionOnReplica() {
+        assertTrue(replicaPool.isAvailable());
+        assertEquals(0, queryMarker(true));
+    }
+
+    @Test
+    void testWriteTransactionOnPrimary() {
+        assertThrows(DataAccessException.class, () -> queryMarker(false));
+    }
+
+    @Test
+    void testLaggingReplicaFallback() {
+        setReplicaLag(60);
+
+        assertFalse(replicaPool.isAvailable());
+        assertThrows(DataAccessException.class, () -> queryMarker(true));
+
+        setReplicaLag(1);
+
+        assertEquals(0, queryMarker(true));
+    }
+
+    @Test
+    void testReplicaLagMetric() {
+        setReplicaLag(2.5);
+
+        assertEquals(2.5, meterRegistry.get("property.replica.lag").timeGauge().value());
+
+        replicaAdminTemplate.execute("drop table replica_lag");
+        replicaPool.checkLag();
+
+        /* an unreachable replica is not used */
+        assertTrue(Double.isNaN(meterRegistry.get("property.replica.lag").timeGauge().value()));
+        assertFalse(replicaPool.isAvailable());
+    }
+}
@@ -0,0 +1,224 @@
+package com.bookatop.property.reg.index;
+
+import com.bookatop.property.reg.clients.CachedCatalogBookClient;
+import com.bookatop.property.reg.repository.PropertyRegRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource("classpath:application.properties")
+class PropertySearchIndexTest {
+
+    private static final long BELARUS_COUNTRY_ID = 1;
+
+    private static final long POLAND_COUNTRY_ID = 2;
+
+    private static final long MINSK_CITY_ID = 10;
+
+    private static final long BREST_CITY_ID = 11;
+
+    private static final long WARSAW_CITY_ID = 20;
+
+    private static final long HOTEL_CAT_ID = 100;
+
+    private static final long HOSTEL_CAT_ID = 101;
+
+    private static final int LIMIT = 20;
+
+    @MockBean
+    private PropertyRegRepository propertyRegRepository;
+
+    @MockBean
+    private CachedCatalogBookClient cachedCatalogBookClient;
+
+    @Autowired
+    private PropertySearchIndex propertySearchIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void testBeforeEach() {
+        when(propertyRegRepository.streamActivePropertyIndexItems()).thenReturn(Stream.of(
+                new PropertyIndexItem(1L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, HOTEL_CAT_ID),
+                new PropertyIndexItem(2L, BELARUS_COUNTRY_ID, BREST_CITY_ID, HOSTEL_CAT_ID),
+                new PropertyIndexItem(3L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, HOSTEL_CAT_ID),
+                new PropertyIndexItem(4L, POLAND_COUNTRY_ID, WARSAW_CITY_ID, HOTEL_CAT_ID),
+                new PropertyIndexItem(5L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, HOTEL_CAT_ID)
+        ));
+
+        propertySearchIndex.build();
+    }
+
+    @Test
+    void testBuild() {
+        assertTrue(propertySearchIndex.isReady());
+        assertEquals(5, propertySearchIndex.size());
+
+        assertEquals(5.0, meterRegistry.get("property.search.index.size").gauge().value());
+        assertNotNull(meterRegistry.get("property.search.index.build.time").timeGauge());
+    }
+
+    @Test
+    void testFindByCountry() {
+        assertArrayEquals(new long[]{5, 3, 2, 1},
+                propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, null, null, Long.MAX_VALUE, LIMIT));
+        assertArrayEquals(new long[]{4},
+                propertySearchIndex.findPropertyIds(POLAND_COUNTRY_ID, null, null, Long.MAX_VALUE, LIMIT));
+        assertArrayEquals(new long[0],
+                propertySearchIndex.findPropertyIds(999L, null, null, Long.MAX_VALUE, LIMIT));
+    }
+
+    @Test
+    void testFindByCountryCity() {
+        assertArrayEquals(new long[]{5, 3, 1},
+                propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, MINSK_CITY_ID, null, Long.MAX_VALUE, LIMIT));
+
+        /* the city of another country */
+        assertArrayEquals(new long[0],
+                propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, WARSAW_CITY_ID, null, Long.MAX_VALUE, LIMIT));
+    }
+
+    @Test
+    void testFindByCategory() {
+        assertArrayEquals(new long[]{5, 1},
+                propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, MINSK_CITY_ID, List.of(HOTEL_CAT_ID),
+                        Long.MAX_VALUE, LIMIT));
+        assertArrayEquals(new long[]{5, 3, 2, 1},
+                propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, null, List.of(HOTEL_CAT_ID, HOSTEL_CAT_ID),
+                        Long.MAX_VALUE, LIMIT));
+        assertArrayEquals(new long[0],
+                propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, null, List.of(), Long.MAX_VALUE, LIMIT));
+    }
+
+    @Test
+    void testFindPage() {
+        assertArrayEquals(new long[]{5, 3},
+                propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, null, null, Long.MAX_VALUE, 2));
+        assertArrayEquals(new long[]{2, 1},
+                propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, null, null, 3L, 2));
+        assertArrayEquals(new long[0],
+                propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, null, null, 1L, 2));
+    }
+
+    @Test
+    void testIndexProperty() {
+        /* new property */
+        propertySearchIndex.indexProperty(6L, POLAND_COUNTRY_ID, WARSAW_CITY_ID, HOSTEL_CAT_ID, true);
+
+        assertArrayEquals(new long[]{6, 4},
+                propertySearchIndex.findPropertyIds(POLAND_COUNTRY_ID, WARSAW_CITY_ID, null, Long.MAX_VALUE, LIMIT));
+
+        /* moved to another city */
+        propertySearchIndex.indexProperty(3L, BELARUS_COUNTRY_ID, BREST_CITY_ID, HOSTEL_CAT_ID, true);
+
+        assertArrayEquals(new long[]{5, 1},
+                propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, MINSK_CITY_ID, null, Long.MAX_VALUE, LIMIT));
+        assertArrayEquals(new long[]{3, 2},
+                propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, BREST_CITY_ID, null, Long.MAX_VALUE, LIMIT));
+
+        /* deactivated */
+        propertySearchIndex.indexProperty(5L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, HOTEL_CAT_ID, false);
+
+        assertArrayEquals(new long[]{1},
+                propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, null, List.of(HOTEL_CAT_ID), Long.MAX_VALUE, LIMIT));
+        assertEquals(5, propertySearchIndex.size());
+    }
+
+    @Test
+    void testFacetCounts() {
+        assertEquals(Map.of(BELARUS_COUNTRY_ID, 4, POLAND_COUNTRY_ID, 1), propertySearchIndex.getCountryCounts());
+        assertEquals(Map.of(MINSK_CITY_ID, 3, BREST_CITY_ID, 1), propertySearchIndex.getCityCounts(BELARUS_COUNTRY_ID));
+        assertEquals(Map.of(), propertySearchIndex.getCityCounts(999L));
+        assertEquals(Map.of(HOTEL_CAT_ID, 3, HOSTEL_CAT_ID, 2), propertySearchIndex.getCategoryCounts());
+    }
+
+    @Test
+    void testFacetCountsOfIndexedProperty() {
+        /* moved to another country and category */
+        propertySearchIndex.indexProperty(2L, POLAND_COUNTRY_ID, WARSAW_CITY_ID, HOTEL_CAT_ID, true);
+
+        assertEquals(Map.of(BELARUS_COUNTRY_ID, 3, POLAND_COUNTRY_ID, 2), propertySearchIndex.getCountryCounts());
+        assertEquals(Map.of(MINSK_CITY_ID, 3), propertySearchIndex.getCityCounts(BELARUS_COUNTRY_ID));
+        assertEquals(Map.of(WARSAW_CITY_ID, 2), propertySearchIndex.getCityCounts(POLAND_COUNTRY_ID));
+        assertEquals(Map.of(HOTEL_CAT_ID, 4, HOSTEL_CAT_ID, 1), propertySearchIndex.getCategoryCounts());
+
+        /* deactivated, the keys without properties are removed */
+        propertySearchIndex.indexProperty(3L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, HOSTEL_CAT_ID, false);
+        propertySearchIndex.indexProperty(3L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, HOSTEL_CAT_ID, false);
+
+        assertEquals(Map.of(BELARUS_COUNTRY_ID, 2, POLAND_COUNTRY_ID, 2), propertySearchIndex.getCountryCounts());
+        assertEquals(Map.of(HOTEL_CAT_ID, 4), propertySearchIndex.getCategoryCounts());
+    }
+
+    @Test
+    void testRebuild() {
+        when(propertyRegRepository.streamActivePropertyIndexItems()).thenReturn(Stream.of(
+                new PropertyIndexItem(6L, POLAND_COUNTRY_ID, WARSAW_CITY_ID, HOSTEL_CAT_ID)
+        ).peek(item -> {
+            /* readers see the previous index while the items are streamed */
+            assertEquals(Map.of(BELARUS_COUNTRY_ID, 4, POLAND_COUNTRY_ID, 1), propertySearchIndex.getCountryCounts());
+            assertArrayEquals(new long[]{4},
+                    propertySearchIndex.findPropertyIds(POLAND_COUNTRY_ID, null, null, Long.MAX_VALUE, LIMIT));
+        }));
+
+        propertySearchIndex.build();
+
+        assertEquals(Map.of(POLAND_COUNTRY_ID, 1), propertySearchIndex.getCountryCounts());
+        assertEquals(Map.of(HOSTEL_CAT_ID, 1), propertySearchIndex.getCategoryCounts());
+        assertArrayEquals(new long[]{6},
+                propertySearchIndex.findPropertyIds(POLAND_COUNTRY_ID, null, null, Long.MAX_VALUE, LIMIT));
+        assertEquals(1.0, meterRegistry.get("property.search.index.size").gauge().value());
+    }
+
+    @Test
+    void testBuildOnPrimary() {
+        when(propertyRegRepository.streamActivePropertyIndexItems()).thenReturn(Stream.of(
+                new PropertyIndexItem(1L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, HOTEL_CAT_ID)
+        ).peek(item -> {
+            /* a read-only transaction would be routed to the replica */
+            assertTrue(TransactionSynchronizationManager.isActualTransactionActive());
+            assertFalse(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        }));
+
+        propertySearchIndex.build();
+
+        assertEquals(1, propertySearchIndex.size());
+    }
+
+    @Test
+    void testIndexPropertyWhileBuilding() {
+        when(propertyRegRepository.streamActivePropertyIndexItems()).thenReturn(Stream.of(
+                new PropertyIndexItem(1L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, HOTEL_CAT_ID),
+                new PropertyIndexItem(4L, POLAND_COUNTRY_ID, WARSAW_CITY_ID, HOTEL_CAT_ID)
+        ).peek(item -> {
+            /* edits of other threads are not blocked by the build, they are kept in the built index */
+            if (item.getPropertyId() == 1L)
+                CompletableFuture.runAsync(() -> {
+                    propertySearchIndex.indexProperty(6L, POLAND_COUNTRY_ID, WARSAW_CITY_ID, HOSTEL_CAT_ID, true);
+                    propertySearchIndex.indexProperty(4L, POLAND_COUNTRY_ID, WARSAW_CITY_ID, HOTEL_CAT_ID, false);
+                }).join();
+        }));
+
+        propertySearchIndex.build();
+
+        assertArrayEquals(new long[]{6},
+                propertySearchIndex.findPropertyIds(POLAND_COUNTRY_ID, null, null, Long.MAX_VALUE, LIMIT));
+        assertEquals(Map.of(BELARUS_COUNTRY_ID, 1, POLAND_COUNTRY_ID, 1), propertySearchIndex.getCountryCounts());
+        assertEquals(2, propertySearchIndex.size());
+    }
+}
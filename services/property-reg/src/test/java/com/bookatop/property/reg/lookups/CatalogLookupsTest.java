@@ -0,0 +1,102 @@
+package com.bookatop.property.reg.lookups;
+
+import com.bookatop.catalog.book.api.model.Country;
+import com.bookatop.catalog.book.api.model.RoomName;
+import com.bookatop.catalog.book.api.model.RoomType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogLookupsTest {
+
+    private static Country createCountry(long id, String name) {
+        Country country = new Country();
+        country.setId(id);
+        country.setTsName(name);
+        return country;
+    }
+
+    @Test
+    void testCountryLookup() {
+        NameLookup countries = CatalogLookups.countries(List.of(
+                createCountry(1, "Belarus"),
+                createCountry(2, "Poland"),
+                createCountry(3, "POLAND")));
+
+        assertEquals("Belarus", countries.findName(1L));
+        assertNull(countries.findName(4L));
+
+        assertEquals(1L, countries.findId("belarus"));
+        assertEquals(1L, countries.findId("BELARUS"));
+        assertNull(countries.findId("Ukraine"));
+
+        /* the first country of the same name wins */
+        assertEquals(2L, countries.findId("Poland"));
+    }
+
+    @Test
+    void testNameFolding() {
+        NameLookup countries = CatalogLookups.countries(List.of(
+                createCountry(1, "Côte d'Ivoire"),
+                createCountry(2, "Łódź Voivodeship"),
+                createCountry(3, "Беларусь")));
+
+        assertEquals(1L, countries.findId("cote d ivoire"));
+        assertEquals(1L, countries.findId(" CÔTE  D'IVOIRE, "));
+        assertEquals(2L, countries.findId("lodz voivodeship"));
+        assertEquals(3L, countries.findId("беларусь\u200B"));
+
+        assertEquals("cote d ivoire", NameLookup.normalizeName("Côte\u00A0d’Ivoire"));
+    }
+
+    @Test
+    void testPrefixLookup() {
+        NameLookup countries = CatalogLookups.countries(List.of(
+                createCountry(1, "Belarus"),
+                createCountry(2, "Belgium"),
+                createCountry(3, "Poland"),
+                createCountry(4, "Bosnia and Herzegovina"),
+                createCountry(5, "Antigua and Barbuda")));
+
+        assertEquals(List.of(1L, 2L), countries.findIdsByPrefix("BEL", 10));
+        assertEquals(List.of(1L), countries.findIdsByPrefix("bel", 1));
+        assertEquals(List.of(1L), countries.findIdsByPrefix("belarus", 10));
+
+        /* names which start with the prefix go before the names of an inner word */
+        assertEquals(List.of(1L, 2L, 4L, 5L), countries.findIdsByPrefix("b", 10));
+        assertEquals(List.of(5L, 4L), countries.findIdsByPrefix("and", 10));
+
+        assertEquals(List.of(), countries.findIdsByPrefix("Ukr", 10));
+        assertEquals(List.of(), countries.findIdsByPrefix(" ,", 10));
+    }
+
+    @Test
+    void testLookupIsBuiltOncePerList() {
+        List<Country> countries = new ArrayList<>(List.of(createCountry(1, "Belarus")));
+
+        NameLookup lookup = CatalogLookups.countries(countries);
+
+        assertSame(lookup, CatalogLookups.countries(countries));
+
+        /* an equal list of a refreshed catalog has its own lookup */
+        assertNotSame(lookup, CatalogLookups.countries(new ArrayList<>(countries)));
+    }
+
+    @Test
+    void testRoomTypeLookup() {
+        RoomTypeLookup roomTypes = CatalogLookups.roomTypes(List.of(
+                new RoomType(9L, "family", List.of(new RoomName(388L, "family view on sea"))),
+                new RoomType(10L, "single", List.of(new RoomName(389L, "single view on sea")))));
+
+        assertEquals("family", roomTypes.findRoomTypeName(9L));
+        assertEquals("family view on sea", roomTypes.findRoomName(9L, 388L));
+
+        /* a room name is found in its room type only */
+        assertNull(roomTypes.findRoomName(9L, 389L));
+        assertNull(roomTypes.findRoomName(11L, 388L));
+        assertNull(roomTypes.findRoomTypeName(11L));
+    }
+}
@@ -0,0 +1,121 @@
+package com.bookatop.property.reg.patches;
+
+import com.bookatop.property.reg.exception.PropertyRegException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertyJsonPatchTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String TARGET_JSON = "{\"hotelAboutData\":{\"propName\":\"Europe\",\"stars\":3}," +
+            "\"hotelPhotosData\":{\"images\":[{\"url\":\"/1.jpg\"},{\"url\":\"/2.jpg\"}]}}";
+
+    private static JsonNode readTree(String json) throws JsonProcessingException {
+        return OBJECT_MAPPER.readTree(json.replace('\'', '"'));
+    }
+
+    @Test
+    void testMergePatch() throws JsonProcessingException {
+        JsonNode patched = PropertyJsonPatch.applyMergePatch(readTree(TARGET_JSON),
+                readTree("{'hotelAboutData':{'propName':'Minsk','stars':null,'rooms':{'count':7}}}"));
+
+        assertEquals(readTree("{'hotelAboutData':{'propName':'Minsk','rooms':{'count':7}}," +
+                "'hotelPhotosData':{'images':[{'url':'/1.jpg'},{'url':'/2.jpg'}]}}"), patched);
+    }
+
+    @Test
+    void testMergePatchReplacesArray() throws JsonProcessingException {
+        JsonNode patched = PropertyJsonPatch.applyMergePatch(readTree(TARGET_JSON),
+                readTree("{'hotelPhotosData':{'images':[{'url':'/3.jpg'}]}}"));
+
+        /* arrays are not merged, the patch array is the new value */
+        assertEquals(readTree("[{'url':'/3.jpg'}]"), patched.at("/hotelPhotosData/images"));
+    }
+
+    @Test
+    void testMergePatchNotObject() throws JsonProcessingException {
+        assertEquals(readTree("[1]"), PropertyJsonPatch.applyMergePatch(readTree(TARGET_JSON), readTree("[1]")));
+        assertThrows(PropertyRegException.class, () -> PropertyJsonPatch.applyMergePatch(readTree(TARGET_JSON), null));
+    }
+
+    @Test
+    void testJsonPatch() throws JsonProcessingException {
+        JsonNode patched = PropertyJsonPatch.applyJsonPatch(readTree(TARGET_JSON), readTree("[" +
+                "{'op':'test','path':'/hotelAboutData/stars','value':3.0}," +
+                "{'op':'replace','path':'/hotelAboutData/propName','value':'Minsk'}," +
+                "{'op':'remove','path':'/hotelAboutData/stars'}," +
+                "{'op':'add','path':'/hotelPhotosData/images/0','value':{'url':'/0.jpg'}}," +
+                "{'op':'add','path':'/hotelPhotosData/images/-','value':{'url':'/3.jpg'}}," +
+                "{'op':'remove','path':'/hotelPhotosData/images/1'}," +
+                "{'op':'copy','from':'/hotelPhotosData/images/0/url','path':'/hotelPhotosData/cover'}," +
+                "{'op':'move','from':'/hotelAboutData/propName','path':'/hotelAboutData/name~1title'}" +
+                "]"));
+
+        assertEquals(readTree("{'hotelAboutData':{'name/title':'Minsk'}," +
+                "'hotelPhotosData':{'images':[{'url':'/0.jpg'},{'url':'/2.jpg'},{'url':'/3.jpg'}]," +
+                "'cover':'/0.jpg'}}"), patched);
+    }
+
+    @Test
+    void testJsonPatchReplacesArrayElement() throws JsonProcessingException {
+        JsonNode patched = PropertyJsonPatch.applyJsonPatch(readTree(TARGET_JSON),
+                readTree("[{'op':'replace','path':'/hotelPhotosData/images/0','value':{'url':'/X.jpg'}}]"));
+
+        /* the element is overwritten, no photo is added */
+        assertEquals(readTree("[{'url':'/X.jpg'},{'url':'/2.jpg'}]"), patched.at("/hotelPhotosData/images"));
+    }
+
+    @Test
+    void testJsonPatchReplacesObjectMember() throws JsonProcessingException {
+        JsonNode patched = PropertyJsonPatch.applyJsonPatch(readTree(TARGET_JSON),
+                readTree("[{'op':'replace','path':'/hotelAboutData/stars','value':4}]"));
+
+        assertEquals(readTree("{'propName':'Europe','stars':4}"), patched.at("/hotelAboutData"));
+    }
+
+    @Test
+    void testJsonPatchReplacesRoot() throws JsonProcessingException {
+        JsonNode patched = PropertyJsonPatch.applyJsonPatch(readTree(TARGET_JSON),
+                readTree("[{'op':'replace','path':'','value':{'hotelAboutData':{}}}]"));
+
+        assertEquals(readTree("{'hotelAboutData':{}}"), patched);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{}",
+            "[{'op':'unknown','path':'/hotelAboutData'}]",
+            "[{'op':'add','path':'hotelAboutData','value':1}]",
+            "[{'op':'add','path':'/hotelAboutData/address/city','value':1}]",
+            "[{'op':'add','path':'/hotelAboutData/stars'}]",
+            "[{'op':'add','path':'/hotelPhotosData/images/3','value':1}]",
+            "[{'op':'replace','path':'/hotelAboutData/rooms','value':1}]",
+            "[{'op':'replace','path':'/hotelPhotosData/images/2','value':1}]",
+            "[{'op':'replace','path':'/hotelPhotosData/images/-','value':1}]",
+            "[{'op':'remove','path':'/hotelPhotosData/images/-'}]",
+            "[{'op':'remove','path':''}]",
+            "[{'op':'move','from':'/hotelAboutData','path':'/hotelAboutData/about'}]",
+            "[{'op':'copy','from':'/hotelRoomsData','path':'/hotelAboutData/rooms'}]",
+            "[{'op':'test','path':'/hotelAboutData/stars','value':'3'}]"})
+    void testInvalidJsonPatch(String patch) {
+        assertThrows(PropertyRegException.class,
+                () -> PropertyJsonPatch.applyJsonPatch(readTree(TARGET_JSON), readTree(patch)));
+    }
+
+    @Test
+    void testFailedOperationRejectsPatch() throws JsonProcessingException {
+        JsonNode target = readTree(TARGET_JSON);
+
+        /* the caller drops the partly patched tree, nothing is written */
+        assertThrows(PropertyRegException.class, () -> PropertyJsonPatch.applyJsonPatch(target, readTree("[" +
+                "{'op':'replace','path':'/hotelAboutData/propName','value':'Minsk'}," +
+                "{'op':'test','path':'/hotelAboutData/stars','value':4}]")));
+    }
+}
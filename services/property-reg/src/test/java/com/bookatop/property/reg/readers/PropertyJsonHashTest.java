@@ -0,0 +1,41 @@
+package com.bookatop.property.reg.readers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PropertyJsonHashTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static String hash(String json) throws JsonProcessingException {
+        return PropertyJsonHash.hash(OBJECT_MAPPER.getFactory(), OBJECT_MAPPER.readTree(json));
+    }
+
+    @Test
+    void testSameContent() throws JsonProcessingException {
+        String json = "{\"hotelAboutData\":{\"propName\":\"Europe\",\"stars\":3},\"images\":[\"/1.jpg\",\"/2.jpg\"]}";
+
+        assertEquals(64, hash(json).length());
+        assertEquals(hash(json), hash(json));
+
+        /* key order, whitespace and number forms are not the content */
+        assertEquals(hash(json), hash("{ \"images\" : [ \"/1.jpg\", \"/2.jpg\" ],\n" +
+                "  \"hotelAboutData\" : { \"stars\" : 3.00, \"propName\" : \"Europe\" } }"));
+        assertEquals(hash("{\"price\":100}"), hash("{\"price\":1E+2}"));
+    }
+
+    @Test
+    void testChangedContent() throws JsonProcessingException {
+        String json = "{\"hotelAboutData\":{\"propName\":\"Europe\",\"stars\":3},\"images\":[\"/1.jpg\",\"/2.jpg\"]}";
+
+        assertNotEquals(hash(json), hash(json.replace("Europe", "Minsk")));
+        assertNotEquals(hash(json), hash(json.replace("3", "\"3\"")));
+        assertNotEquals(hash(json), hash(json.replace("\"/1.jpg\",\"/2.jpg\"", "\"/2.jpg\",\"/1.jpg\"")));
+        assertNotEquals(hash("{\"propName\":null}"), hash("{}"));
+        assertNotEquals(hash("{\"a\":\"b\"}"), hash("{\"ab\":\"\"}"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.bookatop.property.reg.render;
+
+import com.bookatop.property.reg.clients.CachedCatalogBookClient;
+import com.bookatop.property.reg.exception.PropertyRegException;
+import com.bookatop.property.reg.repository.PropertyRegRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource("classpath:application.properties")
+class ParallelListRendererTest {
+
+    private static final String RENDER_THREAD_PREFIX = "property-render-";
+
+    @MockBean
+    private PropertyRegRepository propertyRegRepository;
+
+    @MockBean
+    private CachedCatalogBookClient cachedCatalogBookClient;
+
+    @Autowired
+    private ParallelListRenderer parallelListRenderer;
+
+    private RequestAttributes requestAttributes;
+
+    @BeforeEach
+    void testBeforeEach() {
+        requestAttributes = new ServletRequestAttributes(new MockHttpServletRequest());
+        RequestContextHolder.setRequestAttributes(requestAttributes);
+    }
+
+    @AfterEach
+    void testAfterEach() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void testRenderOrder() {
+        List<Long> propIds = LongStream.rangeClosed(1, 50).map(i -> 1000 - i).boxed().toList();
+
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+        List<String> views = parallelListRenderer.render(propIds, propId -> {
+            threadNames.add(Thread.currentThread().getName());
+            return "view" + propId;
+        });
+
+        assertEquals(propIds.stream().map(propId -> "view" + propId).toList(), views);
+
+        /* the request thread renders its part, the rest is rendered by the render executor */
+        assertTrue(threadNames.contains(Thread.currentThread().getName()));
+        assertTrue(threadNames.stream().anyMatch(name -> name.startsWith(RENDER_THREAD_PREFIX)));
+    }
+
+    @Test
+    void testRenderEmptyAndSingle() {
+        assertEquals(List.of(), parallelListRenderer.render(List.<Long>of(), propId -> "view" + propId));
+        assertEquals(List.of("view1"), parallelListRenderer.render(List.of(1L), propId -> "view" + propId));
+    }
+
+    @Test
+    void testRequestContext() {
+        Set<RequestAttributes> renderAttributes = ConcurrentHashMap.newKeySet();
+
+        parallelListRenderer.render(LongStream.rangeClosed(1, 20).boxed().toList(), propId -> {
+            renderAttributes.add(RequestContextHolder.currentRequestAttributes());
+            return propId;
+        });
+
+        assertEquals(Set.of(requestAttributes), renderAttributes);
+    }
+
+    @Test
+    void testRenderException() {
+        List<Long> propIds = LongStream.rangeClosed(1, 20).boxed().toList();
+
+        PropertyRegException e = assertThrows(PropertyRegException.class, () ->
+                parallelListRenderer.render(propIds, propId -> {
+                    if (propId == 17L)
+                        throw new PropertyRegException("Unsupported JSON type");
+                    return propId;
+                }));
+
+        assertEquals("Unsupported JSON type", e.getMessage());
+    }
+}
@@ -0,0 +1,290 @@
+package com.bookatop.property.reg.repository;
+
+import com.bookatop.catalog.book.api.enums.CategoryTypes;
+import com.bookatop.catalog.book.api.model.PropertyCategory;
+import com.bookatop.catalog.book.api.model.PropertyType;
+import com.bookatop.property.reg.api.enums.PropertyJsonType;
+import com.bookatop.property.reg.api.model.PropertyView;
+import com.bookatop.property.reg.cache.PropertyViewCache;
+import com.bookatop.property.reg.clients.CachedCatalogBookClient;
+import com.bookatop.property.reg.entity.PropertyEntity;
+import com.bookatop.property.reg.entity.UserPropertyEntity;
+import com.bookatop.property.reg.exception.PropertyVersionException;
+import com.bookatop.property.reg.index.PropertySearchIndex;
+import com.bookatop.property.reg.model.PropertyEditItem;
+import com.bookatop.property.reg.model.PropertyUpdate;
+import com.bookatop.property.reg.model.PropertyViewPage;
+import com.bookatop.property.reg.service.PropertyEditService;
+import com.bookatop.property.reg.service.PropertyViewService;
+import com.bookatop.property.reg.validators.EditValidator;
+import com.bookatop.property.reg.validators.ViewValidator;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+/*
+    Repository queries and edits against the configured database. The number of the SQL statements of
+    a list must not depend on the number of the listed properties, concurrent edits are not locked
+    and the edit of a changed version fails
+ */
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(locations = "classpath:application.properties",
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class PropertyRepositoryTest {
+
+    private static final long REF_USER_ID = 9930417L;
+
+    private static final long REF_PROP_TYPE_ID = 111309L;
+
+    private static final long REF_PROP_CAT_ID = 222354L;
+
+    private static final int PROPERTY_COUNT = 5;
+
+    @MockBean
+    private CachedCatalogBookClient cachedCatalogBookClient;
+
+    @MockBean
+    private PropertySearchIndex propertySearchIndex;
+
+    /* the full-text search is a native PostgreSQL query, it is stubbed */
+    @SpyBean
+    private PropertyRegRepository propertyRegRepository;
+
+    @MockBean
+    private PropertyViewCache propertyViewCache;
+
+    @Autowired
+    private UserPropertyRepository userPropertyRepository;
+
+    @Autowired
+    private PropertyEditService propertyEditService;
+
+    @Autowired
+    private PropertyViewService propertyViewService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<PropertyEntity> propertyEntities = new ArrayList<>();
+
+    private final List<UserPropertyEntity> userPropertyEntities = new ArrayList<>();
+
+    private Statistics statistics;
+
+    private static PropertySearchHit createSearchHit(Long propId, Float rank) {
+        return new PropertySearchHit() {
+            @Override
+            public Long getId() {
+                return propId;
+            }
+
+            @Override
+            public Float getRank() {
+                return rank;
+            }
+        };
+    }
+
+    @BeforeEach
+    void testBeforeEach() {
+        for (int i = 0; i < PROPERTY_COUNT; i++) {
+            PropertyEntity propertyEntity = new PropertyEntity("{}", PropertyJsonType.HOTEL_JSON, true);
+            propertyEntity.setPropertyName("Property " + i);
+            propertyEntity = propertyRegRepository.save(propertyEntity);
+
+            propertyEntities.add(propertyEntity);
+            userPropertyEntities.add(userPropertyRepository.save(new UserPropertyEntity(
+                    propertyEntity.getId(), REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID)));
+        }
+
+        PropertyType propertyType = new PropertyType();
+        propertyType.setId(REF_PROP_TYPE_ID);
+
+        PropertyCategory propertyCategory = new PropertyCategory();
+        propertyCategory.setId(REF_PROP_CAT_ID);
+        propertyCategory.setCategoryType(CategoryTypes.HOTEL);
+
+        when(cachedCatalogBookClient.getPropertyTypes()).thenReturn(List.of(propertyType));
+        when(cachedCatalogBookClient.getPropertyCategory(REF_PROP_CAT_ID)).thenReturn(propertyCategory);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void testAfterEach() {
+        userPropertyRepository.deleteAll(userPropertyEntities);
+        /* the saved entities have the old version after the edits of a test */
+        propertyRegRepository.deleteAllById(propertyEntities.stream().map(PropertyEntity::getId).toList());
+    }
+
+    @Test
+    void testEditListStatements() {
+        List<PropertyEditItem> editItems = propertyEditService.getEditPropertyList(REF_USER_ID, "en");
+
+        assertEquals(PROPERTY_COUNT, editItems.size());
+        assertEquals("Property " + (PROPERTY_COUNT - 1), editItems.get(0).getPropertyName());
+
+        /* the owner list is a single projection query, no entity is loaded */
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testPublicListStatements() {
+        List<Long> propIds = propertyEntities.stream().map(PropertyEntity::getId).toList();
+
+        List<PropertyEntity> listEntities = propertyRegRepository.findAllByIdInAndIsActiveTrueOrderByIdDesc(propIds);
+        listEntities.forEach(p -> assertEquals(REF_PROP_CAT_ID, p.getUserPropertyEntity().getRefPropCatId()));
+
+        assertEquals(PROPERTY_COUNT, listEntities.size());
+
+        /* the user properties are joined to the properties, no select per property */
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+
+        propertyRegRepository.findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(Long.MAX_VALUE, PageRequest.of(0, PROPERTY_COUNT))
+                .forEach(p -> p.getUserPropertyEntity().getRefPropCatId());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+
+        PropertyEntity viewEntity = propertyRegRepository.findByIdAndIsActiveTrue(propIds.get(0)).orElseThrow();
+
+        assertEquals(REF_PROP_CAT_ID, viewEntity.getUserPropertyEntity().getRefPropCatId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testSearchStatements() {
+        List<Long> propIds = propertyEntities.stream().map(PropertyEntity::getId).toList();
+
+        /* the lowest id has the highest rank */
+        List<PropertySearchHit> hits = propIds.stream()
+                .map(propId -> createSearchHit(propId, 1.0f / propId))
+                .toList();
+
+        doReturn(hits).when(propertyRegRepository).searchActiveProperties(any(), any(), any(), any(), any(), anyInt());
+        when(propertyViewCache.getPropertyView(anyLong(), any(), anyLong(), any())).thenAnswer(invocation ->
+                new PropertyView(invocation.getArgument(0), null, PropertyJsonType.HOTEL_JSON, REF_PROP_CAT_ID));
+
+        PropertyViewPage viewPage = propertyViewService.searchViewProperties("en", "property", null, null,
+                null, null, ViewValidator.NONE).orElseThrow();
+
+        assertEquals(propIds, viewPage.getProperties().stream().map(PropertyView::getPropId).toList());
+
+        /* the found properties are read with their user properties by a single select */
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFacetCountStatements() {
+        List<PropertyKeyCount> categoryCounts = propertyRegRepository.countActiveByRefPropCatId();
+
+        assertEquals(1, categoryCounts.size());
+        assertEquals(REF_PROP_CAT_ID, categoryCounts.get(0).getId());
+        assertEquals(PROPERTY_COUNT, categoryCounts.get(0).getCount());
+
+        /* the properties have no address */
+        assertEquals(List.of(), propertyRegRepository.countActiveByCountryId());
+
+        /* grouped by the database, no entity is loaded */
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testActivatePropertiesStatements() {
+        List<Long> propIds = propertyEntities.stream().map(PropertyEntity::getId).toList();
+
+        propertyEditService.activeProperties(REF_USER_ID, propIds, false);
+
+        /* the owner query and a single update of all the properties */
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        propertyRegRepository.findAllById(propIds).forEach(p -> {
+            assertEquals(false, p.getIsActive());
+            assertEquals(1L, p.getVersion());
+        });
+    }
+
+    @Test
+    void testEditVersion() {
+        long propId = propertyEntities.get(0).getId();
+
+        assertEquals(1L, propertyEditService.activeProperty(REF_USER_ID, propId, false, EditValidator.NONE));
+        assertEquals(2L, propertyEditService.activeProperty(REF_USER_ID, propId, true,
+                versionTag -> versionTag.equals(propId + ".1")));
+
+        assertThrows(PropertyVersionException.class, () -> propertyEditService.activeProperty(REF_USER_ID, propId, false,
+                versionTag -> versionTag.equals(propId + ".1")));
+
+        assertEquals(2L, propertyRegRepository.findById(propId).orElseThrow().getVersion());
+    }
+
+    @Test
+    void testConcurrentEdit() {
+        PropertyEntity firstEdit = propertyRegRepository.findById(propertyEntities.get(0).getId()).orElseThrow();
+        PropertyEntity secondEdit = propertyRegRepository.findById(propertyEntities.get(0).getId()).orElseThrow();
+
+        firstEdit.setIsActive(false);
+        propertyRegRepository.save(firstEdit);
+
+        /* the second edit has read the version before the first edit */
+        secondEdit.setPropertyName("Europe");
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> propertyRegRepository.save(secondEdit));
+
+        PropertyEntity storedEntity = propertyRegRepository.findById(propertyEntities.get(0).getId()).orElseThrow();
+
+        assertEquals(1L, storedEntity.getVersion());
+        assertEquals(false, storedEntity.getIsActive());
+    }
+
+    @Test
+    void testSameContentEdit() {
+        long propId = propertyEntities.get(0).getId();
+        String json = "{\"hotelAboutData\":{\"propName\":\"Europe\",\"stars\":3}}";
+
+        assertEquals(1L, propertyEditService.updateProperty(REF_USER_ID, propId,
+                new PropertyUpdate(json, PropertyJsonType.HOTEL_JSON, REF_PROP_CAT_ID, CategoryTypes.HOTEL), EditValidator.NONE));
+
+        Timestamp modifiedDate = propertyRegRepository.findById(propId).orElseThrow().getModifiedDate();
+
+        /* the same content is not a new version */
+        assertEquals(1L, propertyEditService.updateProperty(REF_USER_ID, propId,
+                new PropertyUpdate("{\"hotelAboutData\":{\"stars\":3,\"propName\":\"Europe\"}}",
+                        PropertyJsonType.HOTEL_JSON, REF_PROP_CAT_ID, CategoryTypes.HOTEL), EditValidator.NONE));
+
+        PropertyEntity storedEntity = propertyRegRepository.findById(propId).orElseThrow();
+
+        assertEquals(1L, storedEntity.getVersion());
+        assertEquals(modifiedDate, storedEntity.getModifiedDate());
+        assertEquals("Europe", storedEntity.getPropertyName());
+    }
+}
@@ -4,16 +4,29 @@ import com.bookatop.catalog.book.api.enums.CategoryTypes;
 import com.bookatop.catalog.book.api.model.City;
 import com.bookatop.catalog.book.api.model.Country;
 import com.bookatop.catalog.book.api.model.PropertyCategory;
+import com.bookatop.catalog.book.api.model.PropertyType;
 import com.bookatop.property.reg.api.enums.PropertyJsonType;
 import com.bookatop.property.reg.api.model.properties.hotel.HotelProperty;
+import com.bookatop.property.reg.cache.PropertyQueryCache;
+import com.bookatop.property.reg.cache.PropertyViewCache;
 import com.bookatop.property.reg.clients.CachedCatalogBookClient;
 import com.bookatop.property.reg.entity.PropertyEntity;
 import com.bookatop.property.reg.entity.UserPropertyEntity;
 import com.bookatop.property.reg.exception.PropertyRegException;
+import com.bookatop.property.reg.exception.PropertyVersionException;
+import com.bookatop.property.reg.index.PropertySearchIndex;
+import com.bookatop.property.reg.model.PropertyActiveResult;
+import com.bookatop.property.reg.model.PropertyEditItem;
 import com.bookatop.property.reg.model.PropertyEditView;
 import com.bookatop.property.reg.model.PropertyUpdate;
+import com.bookatop.property.reg.readers.PropertyJsonHash;
+import com.bookatop.property.reg.repository.PropertyEditSummary;
+import com.bookatop.property.reg.repository.PropertyOwnerItem;
 import com.bookatop.property.reg.repository.PropertyRegRepository;
+import com.bookatop.property.reg.repository.UserPropertyRepository;
+import com.bookatop.property.reg.validators.EditValidator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,10 +35,13 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.TestPropertySource;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
@@ -66,6 +82,18 @@ class PropertyEditServiceTest {
     @MockBean
     private CachedCatalogBookClient cachedCatalogBookClient;
 
+    @MockBean
+    private PropertySearchIndex propertySearchIndex;
+
+    @MockBean
+    private PropertyViewCache propertyViewCache;
+
+    @MockBean
+    private PropertyQueryCache propertyQueryCache;
+
+    @MockBean
+    private UserPropertyRepository userPropertyRepository;
+
     private Country belarusCountry;
 
     private City brestCity;
@@ -108,7 +136,7 @@ class PropertyEditServiceTest {
 
         when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
 
-        propertyEditService.activeProperty(REF_USER_ID, PROPERTY_ID, true);
+        propertyEditService.activeProperty(REF_USER_ID, PROPERTY_ID, true, EditValidator.NONE);
 
         verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
 
@@ -116,6 +144,9 @@ class PropertyEditServiceTest {
             assertEquals(true, argument.getIsActive());
             return true;
         }));
+
+        verify(propertySearchIndex, times(1)).indexProperty(PROPERTY_ID, null, null, REF_PROP_CAT_ID, true);
+        verify(propertyViewCache, times(1)).evictProperty(PROPERTY_ID);
     }
 
     @Test
@@ -133,7 +164,7 @@ class PropertyEditServiceTest {
 
         when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
 
-        propertyEditService.activeProperty(REF_USER_ID, PROPERTY_ID, false);
+        propertyEditService.activeProperty(REF_USER_ID, PROPERTY_ID, false, EditValidator.NONE);
 
         verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
 
@@ -141,6 +172,10 @@ class PropertyEditServiceTest {
             assertEquals(false, argument.getIsActive());
             return true;
         }));
+
+        verify(propertySearchIndex, times(1)).indexProperty(PROPERTY_ID, null, null, REF_PROP_CAT_ID, false);
+        verify(propertyViewCache, times(1)).evictProperty(PROPERTY_ID);
+        verify(propertyQueryCache, times(1)).evictAddress(null, null);
     }
 
     @Test
@@ -148,7 +183,7 @@ class PropertyEditServiceTest {
         when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.empty());
 
         assertThrows(PropertyRegException.class, () ->
-                propertyEditService.activeProperty(REF_USER_ID, PROPERTY_ID, true));
+                propertyEditService.activeProperty(REF_USER_ID, PROPERTY_ID, true, EditValidator.NONE));
 
         verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
     }
@@ -164,7 +199,7 @@ class PropertyEditServiceTest {
         when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
 
         assertThrows(PropertyRegException.class, () ->
-                propertyEditService.activeProperty(REF_USER_ID, PROPERTY_ID, true));
+                propertyEditService.activeProperty(REF_USER_ID, PROPERTY_ID, true, EditValidator.NONE));
 
         verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
     }
@@ -187,7 +222,7 @@ class PropertyEditServiceTest {
         when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
 
         assertThrows(PropertyRegException.class, () ->
-                propertyEditService.activeProperty(CUSTOM_REF_USER_ID, PROPERTY_ID, true));
+                propertyEditService.activeProperty(CUSTOM_REF_USER_ID, PROPERTY_ID, true, EditValidator.NONE));
 
         verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
     }
@@ -275,7 +310,7 @@ class PropertyEditServiceTest {
 
         when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
 
-        propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, propertyUpdate);
+        propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, propertyUpdate, EditValidator.NONE);
 
         verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
 
@@ -285,6 +320,36 @@ class PropertyEditServiceTest {
                     return true;
                 })
         );
+
+        verify(propertyViewCache, times(1)).evictProperty(PROPERTY_ID);
+    }
+
+    @Test
+    void testUpdatePropertyAddress() {
+        PropertyUpdate propertyUpdate =
+                new PropertyUpdate(VALID_PROP_JSON, PropertyJsonType.HOTEL_JSON, REF_PROP_CAT_ID, CategoryTypes.HOTEL);
+
+        UserPropertyEntity propUserEntity = new UserPropertyEntity(
+                PROPERTY_ID, REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID);
+
+        PropertyEntity propertyEntity = makePropertyEntity(
+                PROPERTY_ID, "{}", PropertyJsonType.HOTEL_JSON, true, propUserEntity);
+
+        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+
+        propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, propertyUpdate, EditValidator.NONE);
+
+        verify(propertyRegRepository, times(1)).save(
+                argThat(entity -> {
+                    assertEquals(BELARUS_COUNTRY_ID, entity.getCountryId());
+                    assertEquals(BREST_CITY_ID, entity.getCityId());
+                    return true;
+                })
+        );
+
+        /* the query pages of the old and the new address */
+        verify(propertyQueryCache, times(1)).evictAddress(null, null);
+        verify(propertyQueryCache, times(1)).evictAddress(BELARUS_COUNTRY_ID, BREST_CITY_ID);
     }
 
     @Test
@@ -304,7 +369,7 @@ class PropertyEditServiceTest {
         when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
 
         assertThrows(PropertyRegException.class, () ->
-                propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, propertyUpdate));
+                propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, propertyUpdate, EditValidator.NONE));
 
         verify(propertyRegRepository, times(1))
                 .findById(PROPERTY_ID);
@@ -318,7 +383,27 @@ class PropertyEditServiceTest {
         when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.empty());
 
         assertThrows(PropertyRegException.class, () ->
-                propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, propertyUpdate));
+                propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, propertyUpdate, EditValidator.NONE));
+    }
+
+    @Test
+    void testUpdateInvalidJson() {
+        UserPropertyEntity propUserEntity = new UserPropertyEntity(
+                PROPERTY_ID, REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID);
+
+        PropertyEntity propertyEntity = makePropertyEntity(
+                PROPERTY_ID, VALID_PROP_JSON, PropertyJsonType.HOTEL_JSON, true, propUserEntity);
+
+        PropertyUpdate propertyUpdate =
+                new PropertyUpdate(INVALID_PROP_JSON, PropertyJsonType.HOTEL_JSON, REF_PROP_CAT_ID, CategoryTypes.HOTEL);
+
+        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+
+        assertThrows(PropertyRegException.class, () ->
+                propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, propertyUpdate, EditValidator.NONE));
+
+        assertEquals(VALID_PROP_JSON, propertyEntity.getPropertyJson());
+        verify(propertyRegRepository, never()).save(any());
     }
 
     @Test
@@ -332,7 +417,7 @@ class PropertyEditServiceTest {
         when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
 
         assertThrows(PropertyRegException.class, () ->
-                propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, null));
+                propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, null, EditValidator.NONE));
 
         verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
     }
@@ -367,4 +452,288 @@ class PropertyEditServiceTest {
 
         verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
     }
+
+    @Test
+    void testGetEditPropertyList() {
+        PropertyType propertyType = new PropertyType();
+        propertyType.setId(REF_PROP_TYPE_ID);
+
+        PropertyCategory propertyCategory = new PropertyCategory();
+        propertyCategory.setId(REF_PROP_CAT_ID);
+        propertyCategory.setCategoryType(CategoryTypes.HOTEL);
+
+        when(userPropertyRepository.findEditSummariesByRefUserId(REF_USER_ID)).thenReturn(List.of(
+                new PropertyEditSummary(PROPERTY_ID, "Europe", REF_PROP_TYPE_ID, REF_PROP_CAT_ID, "/images/1.jpg", true),
+                new PropertyEditSummary(PROPERTY_ID - 1, null, REF_PROP_TYPE_ID, REF_PROP_CAT_ID, null, false)));
+        when(cachedCatalogBookClient.getPropertyTypes()).thenReturn(List.of(propertyType));
+        when(cachedCatalogBookClient.getPropertyCategory(REF_PROP_CAT_ID)).thenReturn(propertyCategory);
+
+        List<PropertyEditItem> editItems = propertyEditService.getEditPropertyList(REF_USER_ID, DEF_LANG_ABBREVIATION);
+
+        assertEquals(2, editItems.size());
+
+        assertEquals(PROPERTY_ID, editItems.get(0).getPropertyId());
+        assertEquals("Europe", editItems.get(0).getPropertyName());
+        assertEquals("/images/1.jpg", editItems.get(0).getPropertyImageUrl());
+        assertEquals(CategoryTypes.HOTEL, editItems.get(0).getPropertyCategory());
+        assertEquals(true, editItems.get(0).getIsActive());
+
+        /* a property without a name and images */
+        assertNull(editItems.get(1).getPropertyName());
+        assertNull(editItems.get(1).getPropertyImageUrl());
+        assertEquals(false, editItems.get(1).getIsActive());
+
+        /* the list is not read from the property entities */
+        verifyNoInteractions(propertyRegRepository);
+    }
+
+    @Test
+    void testUpdatePropertySummary() {
+        String propJson = "{\"hotelAboutData\":{\"propName\":\"Europe\"}," +
+                "\"hotelPhotosData\":{\"images\":[{\"url\":\"/images/1.jpg\"}]}}";
+
+        PropertyUpdate propertyUpdate =
+                new PropertyUpdate(propJson, PropertyJsonType.HOTEL_JSON, REF_PROP_CAT_ID, CategoryTypes.HOTEL);
+
+        UserPropertyEntity propUserEntity = new UserPropertyEntity(
+                PROPERTY_ID, REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID);
+
+        PropertyEntity propertyEntity = makePropertyEntity(
+                PROPERTY_ID, VALID_PROP_JSON, PropertyJsonType.HOTEL_JSON, true, propUserEntity);
+        propertyEntity.setPropertyName("Former name");
+        propertyEntity.setImageUrl("/images/0.jpg");
+
+        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+
+        propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, propertyUpdate, EditValidator.NONE);
+
+        verify(propertyRegRepository, times(1)).save(
+                argThat(entity -> {
+                    assertEquals("Europe", entity.getPropertyName());
+                    assertEquals("/images/1.jpg", entity.getImageUrl());
+                    return true;
+                })
+        );
+    }
+
+    @Test
+    void testActivateProperties() {
+        long otherUserId = REF_USER_ID + 1000;
+
+        when(userPropertyRepository.findOwnerItemsByPropertyIds(any())).thenReturn(List.of(
+                new PropertyOwnerItem(PROPERTY_ID, REF_USER_ID, REF_PROP_CAT_ID, BELARUS_COUNTRY_ID, BREST_CITY_ID, false),
+                new PropertyOwnerItem(PROPERTY_ID + 1, otherUserId, REF_PROP_CAT_ID, null, null, false),
+                new PropertyOwnerItem(PROPERTY_ID + 3, REF_USER_ID, REF_PROP_CAT_ID, null, null, true)));
+
+        List<PropertyActiveResult> results = propertyEditService.activeProperties(REF_USER_ID,
+                List.of(PROPERTY_ID, PROPERTY_ID + 1, PROPERTY_ID + 2, PROPERTY_ID + 3, PROPERTY_ID), true);
+
+        /* duplicate ids have a single result, in the order of the request */
+        assertEquals(4, results.size());
+
+        assertEquals(PROPERTY_ID, results.get(0).getPropertyId());
+        assertEquals(true, results.get(0).getIsActive());
+        assertNull(results.get(0).getMessage());
+
+        assertNull(results.get(1).getIsActive());
+        assertEquals("Incorrect property owner", results.get(1).getMessage());
+
+        assertNull(results.get(2).getIsActive());
+        assertEquals("Property is absent", results.get(2).getMessage());
+
+        /* an active property stays active without a new version */
+        assertEquals(true, results.get(3).getIsActive());
+
+        verify(userPropertyRepository, times(1)).findOwnerItemsByPropertyIds(
+                argThat(ids -> ids.size() == 4 && ids.contains(PROPERTY_ID + 2)));
+        verify(propertyRegRepository, times(1)).updateIsActiveByIds(List.of(PROPERTY_ID), true);
+        verify(propertyRegRepository, never()).findById(any());
+
+        verify(propertySearchIndex, times(1))
+                .indexProperty(PROPERTY_ID, BELARUS_COUNTRY_ID, BREST_CITY_ID, REF_PROP_CAT_ID, true);
+        verify(propertySearchIndex, times(1)).indexProperty(anyLong(), any(), any(), any(), anyBoolean());
+        verify(propertyViewCache, times(1)).evictProperty(PROPERTY_ID);
+        verify(propertyQueryCache, times(1)).evictAddress(BELARUS_COUNTRY_ID, BREST_CITY_ID);
+    }
+
+    @Test
+    void testDeactivateUnchangedProperties() {
+        when(userPropertyRepository.findOwnerItemsByPropertyIds(any())).thenReturn(List.of(
+                new PropertyOwnerItem(PROPERTY_ID, REF_USER_ID, REF_PROP_CAT_ID, null, null, false)));
+
+        List<PropertyActiveResult> results = propertyEditService.activeProperties(REF_USER_ID, List.of(PROPERTY_ID), false);
+
+        assertEquals(false, results.get(0).getIsActive());
+
+        verify(propertyRegRepository, never()).updateIsActiveByIds(any(), any());
+        verifyNoInteractions(propertySearchIndex, propertyViewCache);
+    }
+
+    @Test
+    void testActivateInvalidPropertyIds() {
+        List<Long> tooManyIds = LongStream.rangeClosed(1, 101).boxed().toList();
+        List<Long> nullIds = new ArrayList<>();
+        nullIds.add(null);
+
+        assertThrows(PropertyRegException.class, () -> propertyEditService.activeProperties(REF_USER_ID, null, true));
+        assertThrows(PropertyRegException.class, () -> propertyEditService.activeProperties(REF_USER_ID, List.of(), true));
+        assertThrows(PropertyRegException.class, () -> propertyEditService.activeProperties(REF_USER_ID, tooManyIds, true));
+        assertThrows(PropertyRegException.class, () -> propertyEditService.activeProperties(REF_USER_ID, nullIds, true));
+
+        verifyNoInteractions(userPropertyRepository);
+    }
+
+    @Test
+    void testMergePatchProperty() throws JsonProcessingException {
+        PropertyEntity propertyEntity = makePropertyEntity(PROPERTY_ID, VALID_PROP_JSON, PropertyJsonType.HOTEL_JSON, true,
+                new UserPropertyEntity(PROPERTY_ID, REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID));
+
+        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+
+        propertyEditService.patchProperty(REF_USER_ID, PROPERTY_ID,
+                objectMapper.readTree("{\"hotelAboutData\":{\"propName\":\"Europe\",\"address\":{\"city\":{\"id\":5}}}}"),
+                false, EditValidator.NONE);
+
+        verify(propertyRegRepository, times(1)).save(
+                argThat(entity -> {
+                    assertEquals("{\"hotelAboutData\":{\"address\":{\"country\":{\"id\":1},\"city\":{\"id\":5}}," +
+                            "\"propName\":\"Europe\"}}", entity.getPropertyJson());
+                    assertEquals(BELARUS_COUNTRY_ID, entity.getCountryId());
+                    assertEquals(5L, entity.getCityId());
+                    assertEquals("Europe", entity.getPropertyName());
+                    return true;
+                })
+        );
+
+        verify(propertyViewCache, times(1)).evictProperty(PROPERTY_ID);
+    }
+
+    @Test
+    void testJsonPatchProperty() throws JsonProcessingException {
+        PropertyEntity propertyEntity = makePropertyEntity(PROPERTY_ID, VALID_PROP_JSON, PropertyJsonType.HOTEL_JSON, true,
+                new UserPropertyEntity(PROPERTY_ID, REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID));
+
+        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+
+        propertyEditService.patchProperty(REF_USER_ID, PROPERTY_ID,
+                objectMapper.readTree("[{\"op\":\"remove\",\"path\":\"/hotelAboutData/address/city\"}]"), true, EditValidator.NONE);
+
+        verify(propertyRegRepository, times(1)).save(
+                argThat(entity -> {
+                    assertEquals("{\"hotelAboutData\":{\"address\":{\"country\":{\"id\":1}}}}", entity.getPropertyJson());
+                    assertNull(entity.getCityId());
+                    return true;
+                })
+        );
+    }
+
+    @Test
+    void testInvalidPatchProperty() throws JsonProcessingException {
+        PropertyEntity propertyEntity = makePropertyEntity(PROPERTY_ID, VALID_PROP_JSON, PropertyJsonType.HOTEL_JSON, true,
+                new UserPropertyEntity(PROPERTY_ID, REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID));
+
+        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+
+        JsonNode failedTest = objectMapper.readTree("[{\"op\":\"test\",\"path\":\"/hotelAboutData\",\"value\":1}]");
+        JsonNode notObject = objectMapper.readTree("\"Europe\"");
+
+        assertThrows(PropertyRegException.class,
+                () -> propertyEditService.patchProperty(REF_USER_ID, PROPERTY_ID, failedTest, true, EditValidator.NONE));
+        assertThrows(PropertyRegException.class,
+                () -> propertyEditService.patchProperty(REF_USER_ID, PROPERTY_ID, notObject, false, EditValidator.NONE));
+        assertThrows(PropertyRegException.class,
+                () -> propertyEditService.patchProperty(REF_USER_ID + 1, PROPERTY_ID, notObject, false, EditValidator.NONE));
+
+        verify(propertyRegRepository, never()).save(any());
+        assertEquals(VALID_PROP_JSON, propertyEntity.getPropertyJson());
+    }
+
+    @Test
+    void testUpdatePropertyVersion() {
+        PropertyEntity propertyEntity = makePropertyEntity(PROPERTY_ID, VALID_PROP_JSON, PropertyJsonType.HOTEL_JSON, true,
+                new UserPropertyEntity(PROPERTY_ID, REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID));
+        propertyEntity.setVersion(3L);
+
+        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+
+        PropertyUpdate propertyUpdate =
+                new PropertyUpdate(VALID_PROP_JSON, PropertyJsonType.HOTEL_JSON, REF_PROP_CAT_ID, CategoryTypes.HOTEL);
+
+        /* the version is incremented by the flush of the repository */
+        long version = propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, propertyUpdate,
+                versionTag -> versionTag.equals(PROPERTY_ID + ".3"));
+
+        assertEquals(3L, version);
+
+        verify(propertyRegRepository, times(1)).save(propertyEntity);
+        verify(propertyRegRepository, times(1)).flush();
+    }
+
+    @Test
+    void testUpdateChangedPropertyVersion() {
+        PropertyEntity propertyEntity = makePropertyEntity(PROPERTY_ID, VALID_PROP_JSON, PropertyJsonType.HOTEL_JSON, true,
+                new UserPropertyEntity(PROPERTY_ID, REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID));
+        propertyEntity.setVersion(3L);
+
+        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+
+        JsonNode patch = objectMapper.createObjectNode();
+        EditValidator previousVersion = versionTag -> versionTag.equals(PROPERTY_ID + ".2");
+
+        assertThrows(PropertyVersionException.class,
+                () -> propertyEditService.activeProperty(REF_USER_ID, PROPERTY_ID, false, previousVersion));
+        assertThrows(PropertyVersionException.class,
+                () -> propertyEditService.patchProperty(REF_USER_ID, PROPERTY_ID, patch, false, previousVersion));
+
+        verify(propertyRegRepository, never()).save(any());
+        verify(propertyViewCache, never()).evictProperty(anyLong());
+    }
+
+    @Test
+    void testUpdateSameContent() throws JsonProcessingException {
+        PropertyEntity propertyEntity = makePropertyEntity(PROPERTY_ID, VALID_PROP_JSON, PropertyJsonType.HOTEL_JSON, true,
+                new UserPropertyEntity(PROPERTY_ID, REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID));
+        propertyEntity.setVersion(3L);
+        propertyEntity.setPropertyJsonHash(
+                PropertyJsonHash.hash(objectMapper.getFactory(), objectMapper.readTree(VALID_PROP_JSON)));
+
+        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+
+        /* the autosave of the same content in another key order */
+        String json = "{\"hotelAboutData\":{\"address\":{\"city\":{\"id\":4},\"country\":{\"id\":1.0}}}}";
+
+        PropertyUpdate propertyUpdate =
+                new PropertyUpdate(json, PropertyJsonType.HOTEL_JSON, REF_PROP_CAT_ID, CategoryTypes.HOTEL);
+
+        assertEquals(3L, propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID, propertyUpdate, EditValidator.NONE));
+        assertEquals(3L, propertyEditService.patchProperty(REF_USER_ID, PROPERTY_ID,
+                objectMapper.readTree("{\"hotelAboutData\":{\"address\":{\"city\":{\"id\":4}}}}"), false, EditValidator.NONE));
+
+        assertEquals(VALID_PROP_JSON, propertyEntity.getPropertyJson());
+
+        verify(propertyRegRepository, never()).save(any());
+        verify(propertyRegRepository, never()).flush();
+        verify(propertyViewCache, never()).evictProperty(anyLong());
+        verify(propertyQueryCache, never()).evictAddress(any(), any());
+        verify(propertySearchIndex, never()).indexProperty(anyLong(), any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testUpdatePropertyHash() throws JsonProcessingException {
+        PropertyEntity propertyEntity = makePropertyEntity(PROPERTY_ID, "{}", PropertyJsonType.HOTEL_JSON, true,
+                new UserPropertyEntity(PROPERTY_ID, REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID));
+
+        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+
+        propertyEditService.updateProperty(REF_USER_ID, PROPERTY_ID,
+                new PropertyUpdate(VALID_PROP_JSON, PropertyJsonType.HOTEL_JSON, REF_PROP_CAT_ID, CategoryTypes.HOTEL), EditValidator.NONE);
+
+        String propJsonHash = PropertyJsonHash.hash(objectMapper.getFactory(), objectMapper.readTree(VALID_PROP_JSON));
+
+        verify(propertyRegRepository, times(1)).save(argThat(entity -> {
+            assertEquals(propJsonHash, entity.getPropertyJsonHash());
+            return true;
+        }));
+        verify(propertyViewCache, times(1)).evictProperty(PROPERTY_ID);
+    }
 }
@@ -3,6 +3,7 @@ package com.bookatop.property.reg.service;
 import com.bookatop.property.reg.api.enums.PropertyJsonType;
 import com.bookatop.property.reg.clients.CachedCatalogBookClient;
 import com.bookatop.property.reg.entity.PropertyEntity;
+import com.bookatop.property.reg.index.PropertySearchIndex;
 import com.bookatop.property.reg.model.PropertyAdd;
 import com.bookatop.property.reg.model.UserProperty;
 import com.bookatop.property.reg.repository.PropertyRegRepository;
@@ -53,6 +54,9 @@ class PropertyRegServiceTest {
     @MockBean
     private CachedCatalogBookClient cachedCatalogBookClient;
 
+    @MockBean
+    private PropertySearchIndex propertySearchIndex;
+
     @BeforeEach
     void beforeEach() {
     }
@@ -98,6 +102,53 @@ class PropertyRegServiceTest {
                     return true;
                 }
         ));
+
+        verify(propertySearchIndex, times(1)).indexProperty(PROPERTY_ID, null, null, REF_PROP_CAT_ID, true);
+    }
+
+    @Test
+    void testPropertyAddressColumns() {
+        String addressPropJson = "{\"hotelAboutData\":{\"address\":{\"country\":{\"id\":1},\"city\":{\"id\":4}}}}";
+
+        PropertyEntity propertyEntity = new PropertyEntity();
+        propertyEntity.setId(PROPERTY_ID);
+
+        when(propertyRegRepository.save(any())).thenReturn(propertyEntity);
+
+        UserProperty userProperty = new UserProperty(REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID);
+
+        propertyRegService.addProperty(new PropertyAdd(addressPropJson, VALID_PROP_JSON_TYPE, userProperty));
+
+        verify(propertyRegRepository, times(1)).save(argThat(
+                argument -> {
+                    assertEquals(1L, argument.getCountryId());
+                    assertEquals(4L, argument.getCityId());
+                    return true;
+                }
+        ));
+    }
+
+    @Test
+    void testPropertySummaryColumns() {
+        String summaryPropJson = "{\"hotelAboutData\":{\"propName\":\"Europe\"}," +
+                "\"hotelPhotosData\":{\"images\":[{\"url\":\"/images/1.jpg\"},{\"url\":\"/images/2.jpg\"}]}}";
+
+        PropertyEntity propertyEntity = new PropertyEntity();
+        propertyEntity.setId(PROPERTY_ID);
+
+        when(propertyRegRepository.save(any())).thenReturn(propertyEntity);
+
+        UserProperty userProperty = new UserProperty(REF_PROP_TYPE_ID, REF_PROP_CAT_ID, REF_USER_ID);
+
+        propertyRegService.addProperty(new PropertyAdd(summaryPropJson, VALID_PROP_JSON_TYPE, userProperty));
+
+        verify(propertyRegRepository, times(1)).save(argThat(
+                argument -> {
+                    assertEquals("Europe", argument.getPropertyName());
+                    assertEquals("/images/1.jpg", argument.getImageUrl());
+                    return true;
+                }
+        ));
     }
 
     @Test
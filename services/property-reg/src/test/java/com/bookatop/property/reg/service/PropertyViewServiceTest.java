@@ -5,11 +5,21 @@ import com.bookatop.catalog.book.api.model.*;
 import com.bookatop.property.reg.api.enums.PropertyJsonType;
 import com.bookatop.property.reg.api.model.PropertyView;
 import com.bookatop.property.reg.api.model.properties.hotel.HotelProperty;
+import com.bookatop.property.reg.cache.PropertyQueryCache;
+import com.bookatop.property.reg.cache.PropertyViewCache;
 import com.bookatop.property.reg.clients.CachedCatalogBookClient;
 import com.bookatop.property.reg.entity.PropertyEntity;
 import com.bookatop.property.reg.entity.UserPropertyEntity;
 import com.bookatop.property.reg.exception.PropertyRegException;
+import com.bookatop.property.reg.index.PropertySearchIndex;
+import com.bookatop.property.reg.model.PropertyFacets;
+import com.bookatop.property.reg.model.PropertyViewPage;
+import com.bookatop.property.reg.paging.PropertyCursor;
+import com.bookatop.property.reg.repository.PropertyKeyCount;
 import com.bookatop.property.reg.repository.PropertyRegRepository;
+import com.bookatop.property.reg.repository.PropertySearchHit;
+import com.bookatop.property.reg.repository.PropertyVersion;
+import com.bookatop.property.reg.validators.ViewValidator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang.math.RandomUtils;
@@ -18,18 +28,25 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.TestPropertySource;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -52,6 +69,12 @@ class PropertyViewServiceTest {
 
     private static final long HOTEL_PROPERTY_CATEGORY_ID = 1897;
 
+    private static final long HOTEL_PROPERTY_TYPE_ID = 1;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     private static final String INVALID_PROP_JSON = "{INVALID_JSON}";
 
     @MockBean
@@ -60,18 +83,30 @@ class PropertyViewServiceTest {
     @MockBean
     private CachedCatalogBookClient cachedCatalogBookClient;
 
+    /* not ready index (mock default) means the database filtering */
+    @MockBean
+    private PropertySearchIndex propertySearchIndex;
+
     @Autowired
     private PropertyViewService propertyViewService;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PropertyViewCache propertyViewCache;
+
+    @Autowired
+    private PropertyQueryCache propertyQueryCache;
+
     private Country belarusCountry;
 
     private City minskCity;
 
     private PropertyCategory hotelPropertyCategory;
 
+    private PropertyType hotelPropertyType;
+
     private UserPropertyEntity createUserPropertyEntity() {
         return createUserPropertyEntity(PROPERTY_ID);
     }
@@ -87,6 +122,8 @@ class PropertyViewServiceTest {
         propertyEntity.setPropertyJson("{\"hotelAboutData\":{\"address\":{\"country\":{\"id\":1},\"city\":{\"id\":10}}},\"hotelLayoutData\":{\"layoutArea\":{\"roomType\":{\"id\":9},\"roomName\":{\"id\":388}}}}");
         propertyEntity.setPropertyJsonType(PropertyJsonType.HOTEL_JSON);
         propertyEntity.setIsActive(false);
+        propertyEntity.setCountryId(BELARUS_COUNTRY_ID);
+        propertyEntity.setCityId(MINSK_CITY_ID);
 
         propertyEntity.setUserPropertyEntity(userPropertyEntry);
         return propertyEntity;
@@ -101,13 +138,46 @@ class PropertyViewServiceTest {
                 "}}},\"hotelLayoutData\":{\"layoutArea\":{\"roomType\":{\"id\":9},\"roomName\":{\"id\":388}}}}");
         propertyEntity.setPropertyJsonType(PropertyJsonType.HOTEL_JSON);
         propertyEntity.setIsActive(false);
+        propertyEntity.setCountryId(countryId);
+        propertyEntity.setCityId(cityId);
 
         propertyEntity.setUserPropertyEntity(userPropertyEntry);
         return propertyEntity;
     }
 
+    private static PropertySearchHit createSearchHit(Long propId, Float rank) {
+        return new PropertySearchHit() {
+            @Override
+            public Long getId() {
+                return propId;
+            }
+
+            @Override
+            public Float getRank() {
+                return rank;
+            }
+        };
+    }
+
+    private static PropertyKeyCount createKeyCount(Long id, Long count) {
+        return new PropertyKeyCount() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getCount() {
+                return count;
+            }
+        };
+    }
+
     @BeforeEach
     void testBeforeEach() {
+        propertyViewCache.evictAll();
+        propertyQueryCache.evictAll();
+
         belarusCountry = new Country();
         belarusCountry.setId(BELARUS_COUNTRY_ID);
         belarusCountry.setTsName("Belarus");
@@ -122,6 +192,9 @@ class PropertyViewServiceTest {
         hotelPropertyCategory.setTsDescription("HotelCategoryTsDescription");
         hotelPropertyCategory.setCategoryType(CategoryTypes.HOTEL);
         hotelPropertyCategory.setIsActive(true);
+
+        hotelPropertyType = new PropertyType();
+        hotelPropertyType.setId(HOTEL_PROPERTY_TYPE_ID);
     }
 
     @Test
@@ -134,14 +207,14 @@ class PropertyViewServiceTest {
         List<Country> countries = List.of(belarusCountry);
         List<City> cities = List.of(minskCity);
 
-        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+        when(propertyRegRepository.findByIdAndIsActiveTrue(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
         when(cachedCatalogBookClient.getPropertyRoomTypes(REF_PROP_CAT_ID, DEF_LANG_ABBREVIATION)).thenReturn(roomType);
         when(cachedCatalogBookClient.getAllCountries(DEF_LANG_ABBREVIATION)).thenReturn(countries);
         when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, DEF_LANG_ABBREVIATION)).thenReturn(cities);
 
         PropertyView propertyView = propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION);
 
-        verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
+        verify(propertyRegRepository, times(1)).findByIdAndIsActiveTrue(PROPERTY_ID);
         verify(cachedCatalogBookClient, times(1)).getPropertyRoomTypes(REF_PROP_CAT_ID, DEF_LANG_ABBREVIATION);
         verify(cachedCatalogBookClient, times(1)).getAllCountries(DEF_LANG_ABBREVIATION);
         verify(cachedCatalogBookClient, times(1)).getAllCities(BELARUS_COUNTRY_ID, DEF_LANG_ABBREVIATION);
@@ -153,13 +226,47 @@ class PropertyViewServiceTest {
         assertEquals(expectedJson, objectMapper.writeValueAsString(propertyView.getPropJson()));
     }
 
+    @Test
+    void testCachedPropertyView() {
+        PropertyEntity propertyEntity = createPropertyEntity(createUserPropertyEntity());
+
+        when(propertyRegRepository.findByIdAndIsActiveTrue(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+
+        PropertyView propertyView = propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION);
+
+        /* the same view is returned without reading and binding the property again */
+        assertSame(propertyView, propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION));
+
+        verify(propertyRegRepository, times(1)).findByIdAndIsActiveTrue(PROPERTY_ID);
+        verify(cachedCatalogBookClient, times(1)).getAllCountries(DEF_LANG_ABBREVIATION);
+
+        /* another language is rendered separately */
+        assertNotSame(propertyView, propertyViewService.getViewProperty(PROPERTY_ID, "ru"));
+
+        verify(propertyRegRepository, times(2)).findByIdAndIsActiveTrue(PROPERTY_ID);
+        verify(cachedCatalogBookClient, times(1)).getAllCountries("ru");
+    }
+
     @Test
     void testPropertyNoFound() {
-        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.empty());
+        when(propertyRegRepository.findByIdAndIsActiveTrue(PROPERTY_ID)).thenReturn(Optional.empty());
 
         assertThrows(PropertyRegException.class, () -> propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION));
 
-        verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
+        verify(propertyRegRepository, times(1)).findByIdAndIsActiveTrue(PROPERTY_ID);
+    }
+
+    @Test
+    void testInactivePropertyIsAbsent() {
+        PropertyEntity propertyEntity = createPropertyEntity(createUserPropertyEntity());
+
+        /* the owner still reads it by id, the public view does not */
+        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+        when(propertyRegRepository.findByIdAndIsActiveTrue(PROPERTY_ID)).thenReturn(Optional.empty());
+
+        assertThrows(PropertyRegException.class, () -> propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION));
+
+        verify(propertyRegRepository, never()).findById(any());
     }
 
     @Test
@@ -167,23 +274,23 @@ class PropertyViewServiceTest {
         PropertyEntity propertyEntity = createPropertyEntity(createUserPropertyEntity());
         propertyEntity.setPropertyJsonType(PropertyJsonType.GUEST_HOUSE_JSON);
 
-        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+        when(propertyRegRepository.findByIdAndIsActiveTrue(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
 
         assertThrows(PropertyRegException.class, () -> propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION));
 
-        verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
+        verify(propertyRegRepository, times(1)).findByIdAndIsActiveTrue(PROPERTY_ID);
     }
 
     @Test
     void testPropertyWithNoLookups() throws JsonProcessingException {
-        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(createPropertyEntity(createUserPropertyEntity())));
+        when(propertyRegRepository.findByIdAndIsActiveTrue(PROPERTY_ID)).thenReturn(Optional.of(createPropertyEntity(createUserPropertyEntity())));
         when(cachedCatalogBookClient.getPropertyRoomTypes(REF_PROP_CAT_ID, DEF_LANG_ABBREVIATION)).thenReturn(List.of());
         when(cachedCatalogBookClient.getAllCountries(DEF_LANG_ABBREVIATION)).thenReturn(List.of());
         when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, DEF_LANG_ABBREVIATION)).thenReturn(List.of());
 
         PropertyView propertyView = propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION);
 
-        verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
+        verify(propertyRegRepository, times(1)).findByIdAndIsActiveTrue(PROPERTY_ID);
         verify(cachedCatalogBookClient, times(1)).getPropertyRoomTypes(REF_PROP_CAT_ID, DEF_LANG_ABBREVIATION);
         verify(cachedCatalogBookClient, times(1)).getAllCountries(DEF_LANG_ABBREVIATION);
         verify(cachedCatalogBookClient, times(1)).getAllCities(BELARUS_COUNTRY_ID, DEF_LANG_ABBREVIATION);
@@ -201,11 +308,11 @@ class PropertyViewServiceTest {
         PropertyEntity propertyEntity = createPropertyEntity(createUserPropertyEntity());
         propertyEntity.setPropertyJson(INVALID_PROP_JSON);
 
-        when(propertyRegRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+        when(propertyRegRepository.findByIdAndIsActiveTrue(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
 
         assertThrows(PropertyRegException.class, () -> propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION));
 
-        verify(propertyRegRepository, times(1)).findById(PROPERTY_ID);
+        verify(propertyRegRepository, times(1)).findByIdAndIsActiveTrue(PROPERTY_ID);
     }
 
     @Test
@@ -227,19 +334,20 @@ class PropertyViewServiceTest {
 
         List<City> cities = List.of(minskCity);
 
-        when(propertyRegRepository.findAllByOrderByIdDesc()).thenReturn(List.of(propertyEntity));
+        when(propertyRegRepository.findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(eq(Long.MAX_VALUE), any())).thenReturn(List.of(propertyEntity));
 
         when(cachedCatalogBookClient.getPropertyRoomTypes(REF_PROP_CAT_ID, DEF_LANG_ABBREVIATION)).thenReturn(roomType);
         when(cachedCatalogBookClient.getAllCountries(DEF_LANG_ABBREVIATION)).thenReturn(countries);
         when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, DEF_LANG_ABBREVIATION)).thenReturn(cities);
 
-        List<PropertyView> properties = propertyViewService.getViewProperties(DEF_LANG_ABBREVIATION);
+        List<PropertyView> properties =
+                propertyViewService.getViewProperties(DEF_LANG_ABBREVIATION, null, null, ViewValidator.NONE).orElseThrow().getProperties();
 
         Integer expectedSize = 1;
 
         assertEquals(expectedSize, properties.size());
 
-        verify(propertyRegRepository, times(1)).findAllByOrderByIdDesc();
+        verify(propertyRegRepository, times(1)).findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(eq(Long.MAX_VALUE), any());
 
         verify(cachedCatalogBookClient, times(1)).getPropertyRoomTypes(REF_PROP_CAT_ID, DEF_LANG_ABBREVIATION);
         verify(cachedCatalogBookClient, times(1)).getAllCountries(DEF_LANG_ABBREVIATION);
@@ -267,19 +375,109 @@ class PropertyViewServiceTest {
 
         int expectedSize = 10;
 
-        when(propertyRegRepository.findAllByOrderByIdDesc())
+        when(propertyRegRepository.findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(eq(Long.MAX_VALUE), any()))
                 .thenReturn(Stream.generate(propertyEntityFunc).limit(expectedSize).toList());
 
-        List<PropertyView> properties = propertyViewService.getViewProperties(DEF_LANG_ABBREVIATION);
+        List<PropertyView> properties =
+                propertyViewService.getViewProperties(DEF_LANG_ABBREVIATION, null, null, ViewValidator.NONE).orElseThrow().getProperties();
 
         assertEquals(expectedSize, properties.size());
 
-        verify(propertyRegRepository, times(1)).findAllByOrderByIdDesc();
+        verify(propertyRegRepository, times(1)).findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(eq(Long.MAX_VALUE), any());
         verify(cachedCatalogBookClient, times(expectedSize)).getPropertyRoomTypes(any(), any());
         verify(cachedCatalogBookClient, times(expectedSize)).getAllCountries(any());
         verify(cachedCatalogBookClient, times(expectedSize)).getAllCities(any(), any());
     }
 
+    @Test
+    void testPropertyListPageSize() {
+        when(propertyRegRepository.findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(any(), any())).thenReturn(List.of());
+
+        propertyViewService.getViewProperties(DEF_LANG_ABBREVIATION, null, 5, ViewValidator.NONE).orElseThrow();
+        propertyViewService.getViewProperties(DEF_LANG_ABBREVIATION, null, 100_000, ViewValidator.NONE).orElseThrow();
+        propertyViewService.getViewProperties(DEF_LANG_ABBREVIATION, null, null, ViewValidator.NONE).orElseThrow();
+
+        verify(propertyRegRepository, times(1)).findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(
+                eq(Long.MAX_VALUE), argThat(page -> page.getPageSize() == 5));
+
+        /* requested and default page sizes never exceed the maximum */
+        verify(propertyRegRepository, times(1)).findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(
+                eq(Long.MAX_VALUE), argThat(page -> page.getPageSize() == MAX_PAGE_SIZE));
+        verify(propertyRegRepository, times(1)).findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(
+                eq(Long.MAX_VALUE), argThat(page -> page.getPageSize() == DEFAULT_PAGE_SIZE));
+    }
+
+    @Test
+    void testPropertyListCursor() {
+        PropertyEntity firstEntity = createPropertyEntity(1002L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+        PropertyEntity secondEntity = createPropertyEntity(1001L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+        PropertyEntity lastEntity = createPropertyEntity(1000L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+
+        when(propertyRegRepository.findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(eq(Long.MAX_VALUE), any()))
+                .thenReturn(List.of(firstEntity, secondEntity));
+        when(propertyRegRepository.findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(eq(1001L), any()))
+                .thenReturn(List.of(lastEntity));
+
+        PropertyViewPage firstPage = propertyViewService.getViewProperties(DEF_LANG_ABBREVIATION, null, 2, ViewValidator.NONE).orElseThrow();
+
+        assertEquals(2, firstPage.getProperties().size());
+        assertNotNull(firstPage.getNextCursor());
+
+        PropertyViewPage lastPage =
+                propertyViewService.getViewProperties(DEF_LANG_ABBREVIATION, firstPage.getNextCursor(), 2, ViewValidator.NONE).orElseThrow();
+
+        assertEquals(1, lastPage.getProperties().size());
+        assertEquals(1000L, lastPage.getProperties().get(0).getPropId());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    void testPropertyListInvalidCursor() {
+        assertThrows(PropertyRegException.class, () ->
+                propertyViewService.getViewProperties(DEF_LANG_ABBREVIATION, "not a cursor", null, ViewValidator.NONE).orElseThrow());
+
+        verify(propertyRegRepository, never()).findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(any(), any());
+    }
+
+    @Test
+    void testStreamProperties() throws IOException {
+        PropertyEntity firstEntity = createPropertyEntity(1002L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+        PropertyEntity brokenEntity = createPropertyEntity(1001L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+        PropertyEntity lastEntity = createPropertyEntity(1000L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+
+        brokenEntity.setPropertyJsonType(PropertyJsonType.GUEST_HOUSE_JSON);
+
+        when(propertyRegRepository.streamAllActiveByOrderByIdDesc()).thenReturn(Stream.of(firstEntity, brokenEntity, lastEntity));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        propertyViewService.streamViewProperties(DEF_LANG_ABBREVIATION, outputStream);
+
+        verify(propertyRegRepository, times(1)).streamAllActiveByOrderByIdDesc();
+
+        /* one line per property, the property with unsupported JSON type is skipped */
+        List<String> lines = outputStream.toString(StandardCharsets.UTF_8).lines().toList();
+
+        assertEquals(2, lines.size());
+        assertEquals(1002L, objectMapper.readValue(lines.get(0), PropertyView.class).getPropId());
+        assertEquals(1000L, objectMapper.readValue(lines.get(1), PropertyView.class).getPropId());
+    }
+
+    private void mockPropertyAddressQueries(List<PropertyEntity> propEntities) {
+        when(propertyRegRepository.findAllByCountryIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(any(), any(), any()))
+                .thenAnswer(invocation ->
+                propEntities.stream()
+                        .filter(p -> p.getCountryId().equals(invocation.getArgument(0)))
+                        .toList());
+
+        when(propertyRegRepository.findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(any(), any(), any(), any()))
+                .thenAnswer(invocation ->
+                propEntities.stream()
+                        .filter(p -> p.getCountryId().equals(invocation.getArgument(0)) &&
+                                p.getCityId().equals(invocation.getArgument(1)))
+                        .toList());
+    }
+
     private Country createCountry(Long id, String name) {
         Country country = new Country();
         country.setId(id);
@@ -309,16 +507,18 @@ class PropertyViewServiceTest {
         when(cachedCatalogBookClient.getPropertyCategory(any())).thenReturn(hotelPropertyCategory);
         when(cachedCatalogBookClient.getAllCountries(any())).thenReturn(List.of(poland));
         when(cachedCatalogBookClient.getAllCities(eq(POLAND_ID), any())).thenReturn(List.of(warsaw));
-        when(propertyRegRepository.findAllByOrderByIdDesc()).thenReturn(List.of(propWarsawEntity));
+        when(propertyRegRepository.findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                eq(POLAND_ID), eq(WARSAW_ID), eq(Long.MAX_VALUE), any())).thenReturn(List.of(propWarsawEntity));
 
-        List<PropertyView> properties = propertyViewService.queryViewProperties("en", cc, null);
+        List<PropertyView> properties = propertyViewService.queryViewProperties("en", cc, null, null, null, ViewValidator.NONE).orElseThrow().getProperties();
 
         assertEquals(1, properties.size());
 
-        verify(cachedCatalogBookClient, times(1)).getPropertyCategory(any());
+        verify(cachedCatalogBookClient, never()).getPropertyCategory(any());
         verify(cachedCatalogBookClient, times(2)).getAllCountries(any());
         verify(cachedCatalogBookClient, times(2)).getAllCities(eq(POLAND_ID), any());
-        verify(propertyRegRepository, times(1)).findAllByOrderByIdDesc();
+        verify(propertyRegRepository, times(1)).findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                eq(POLAND_ID), eq(WARSAW_ID), eq(Long.MAX_VALUE), any());
 
         HotelProperty property = objectMapper.convertValue(properties.get(0).getPropJson(), HotelProperty.class);
 
@@ -380,27 +580,31 @@ class PropertyViewServiceTest {
         when(cachedCatalogBookClient.getAllCities(eq(POLAND_ID), any())).thenReturn(List.of(warsaw, lodz, poznan));
         when(cachedCatalogBookClient.getAllCities(eq(NETHERLANDS_ID), any())).thenReturn(List.of());
 
-        when(propertyRegRepository.findAllByOrderByIdDesc()).thenReturn(List.of(
+        mockPropertyAddressQueries(List.of(
                 propKievEntity,
                 propLvovEntity,
                 propWarshawEntity,
                 propLodzEntity,
                 propPoznanEntity));
 
-        List<PropertyView> properties = propertyViewService.queryViewProperties("en", ccCountry, null);
+        List<PropertyView> properties = propertyViewService.queryViewProperties("en", ccCountry, null, null, null, ViewValidator.NONE).orElseThrow().getProperties();
 
         assertEquals(ccCount, properties.size());
 
         String ccParam = Optional.ofNullable(ccCountry).flatMap(v -> Optional.of(v.trim())).orElse(null);
 
-//        verify(cachedCatalogBookClient, times(ccCount)).getPropertyCategory(any());
-        verify(cachedCatalogBookClient, times(Strings.isBlank(ccParam) ? 0 : ccCount + 1)).getAllCountries(any());
-        verify(cachedCatalogBookClient, times(ccCount)).getAllCities(any(), any());
-
         boolean isCountryExist = Stream.of(ukraine, poland, netherlands)
                 .anyMatch(country -> country.getTsName().equalsIgnoreCase(ccParam));
 
-        verify(propertyRegRepository, times(isCountryExist ? 1 : 0)).findAllByOrderByIdDesc();
+        // an unknown country is looked up in the request language and then in the default one
+
+//        verify(cachedCatalogBookClient, times(ccCount)).getPropertyCategory(any());
+        verify(cachedCatalogBookClient, times(Strings.isBlank(ccParam) ? 0 : isCountryExist ? ccCount + 1 : 2))
+                .getAllCountries(any());
+        verify(cachedCatalogBookClient, times(ccCount)).getAllCities(any(), any());
+
+        verify(propertyRegRepository, times(isCountryExist ? 1 : 0))
+                .findAllByCountryIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(any(), any(), any());
     }
 
     @ParameterizedTest
@@ -464,7 +668,7 @@ class PropertyViewServiceTest {
         when(cachedCatalogBookClient.getAllCities(eq(POLAND_ID), any())).thenReturn(List.of(warsaw, lodz, poznan));
         when(cachedCatalogBookClient.getAllCities(eq(NETHERLANDS_ID), any())).thenReturn(List.of());
 
-        when(propertyRegRepository.findAllByOrderByIdDesc()).thenReturn(List.of(
+        mockPropertyAddressQueries(List.of(
                 propKievEntity,
                 propLvovEntity,
                 propWarshawEntity,
@@ -476,31 +680,34 @@ class PropertyViewServiceTest {
 
         String ccStr = qCountry.concat(",").concat(qCity);
 
-        List<PropertyView> properties = propertyViewService.queryViewProperties("en", ccStr, null);
+        List<PropertyView> properties = propertyViewService.queryViewProperties("en", ccStr, null, null, null, ViewValidator.NONE).orElseThrow().getProperties();
 
         assertEquals(ccCount, properties.size());
 
+        boolean isCountryExist = Stream.of(ukraine, poland, netherlands)
+                .anyMatch(country -> country.getTsName().equalsIgnoreCase(qCountry.trim()));
+
+        boolean isCityExist = Stream.of(kiev, lvov, warsaw, lodz, poznan)
+                .anyMatch(city -> city.getTsName().equalsIgnoreCase(qCity.trim()));
+
+        // an unknown name is looked up in the request language and then in the default one
+
         verify(cachedCatalogBookClient, times(Strings.isBlank(qCountry)
                 ? 0
-                : ccCount + 1)).getAllCountries(any());
+                : isCountryExist ? ccCount + 1 : 2)).getAllCountries(any());
 
-        verify(cachedCatalogBookClient, times(Strings.isBlank(qCountry) || Strings.isBlank(qCity)
+        verify(cachedCatalogBookClient, times(Strings.isBlank(qCountry) || Strings.isBlank(qCity) || !isCountryExist
                 ? 0
-                : ccCount + 1)).getAllCities(any(), any());
+                : isCityExist ? ccCount + 1 : 2)).getAllCities(any(), any());
 
 //        verify(cachedCatalogBookClient, times(Strings.isBlank(qCountry) || Strings.isBlank(qCity)
 //                ? 0
 //                : ccCount + 1)).getPropertyCategory(any());
 
-        // call findAllByOrderByIdDesc when only country and city exist
-
-        boolean isCountryExist = Stream.of(ukraine, poland, netherlands)
-                .anyMatch(country -> country.getTsName().equalsIgnoreCase(qCountry.trim()));
-
-        boolean isCityExist = Stream.of(kiev, lvov, warsaw, lodz, poznan)
-                .anyMatch(city -> city.getTsName().equalsIgnoreCase(qCity.trim()));
+        // query properties by address when only country and city exist
 
-        verify(propertyRegRepository, times(isCountryExist && isCityExist ? 1 : 0)).findAllByOrderByIdDesc();
+        verify(propertyRegRepository, times(isCountryExist && isCityExist ? 1 : 0))
+                .findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(any(), any(), any(), any());
     }
 
     @ParameterizedTest
@@ -528,14 +735,15 @@ class PropertyViewServiceTest {
         when(cachedCatalogBookClient.getAllCountries(lang)).thenReturn(List.of(createCountry(1L, countryName)));
         when(cachedCatalogBookClient.getAllCities(any(), eq(lang))).thenReturn(List.of(createCity(10L, cityName)));
 
-        when(propertyRegRepository.findAllByOrderByIdDesc()).thenReturn(List.of(propertyEntity));
+        when(propertyRegRepository.findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                eq(1L), eq(10L), eq(Long.MAX_VALUE), any())).thenReturn(List.of(propertyEntity));
         when(cachedCatalogBookClient.getPropertyRoomTypes(REF_PROP_CAT_ID, lang)).thenReturn(roomType);
 
         /*
-            query does not depend on the language, searching always with english
+            english names are found in the request language too (the default language is a fallback)
          */
 
-        List<PropertyView> properties = propertyViewService.queryViewProperties(lang, "Poland,Warsaw", null);
+        List<PropertyView> properties = propertyViewService.queryViewProperties(lang, "Poland,Warsaw", null, null, null, ViewValidator.NONE).orElseThrow().getProperties();
 
         assertEquals(1, properties.size());
 
@@ -555,14 +763,16 @@ class PropertyViewServiceTest {
         expectedProperty.setPropJsonType(propertyEntity.getPropertyJsonType());
         expectedProperty.setPropCatId(propertyEntity.getUserPropertyEntity().getRefPropCatId());
 
-        verify(cachedCatalogBookClient, times(1)).getPropertyCategory(any());
-        verify(cachedCatalogBookClient, times(1)).getAllCountries(null);
-        verify(cachedCatalogBookClient, times(1)).getAllCities(any(), eq(null));
+        verify(cachedCatalogBookClient, never()).getPropertyCategory(any());
+        /* the address is resolved and rendered in the request language */
+        verify(cachedCatalogBookClient, times("en".equals(lang) ? 0 : 1)).getAllCountries(null);
+        verify(cachedCatalogBookClient, times("en".equals(lang) ? 0 : 1)).getAllCities(any(), eq(null));
 
-        verify(cachedCatalogBookClient, times(1)).getAllCountries(lang);
-        verify(cachedCatalogBookClient, times(1)).getAllCities(any(), eq(lang));
+        verify(cachedCatalogBookClient, times(2)).getAllCountries(lang);
+        verify(cachedCatalogBookClient, times(2)).getAllCities(any(), eq(lang));
 
-        verify(propertyRegRepository, times(1)).findAllByOrderByIdDesc();
+        verify(propertyRegRepository, times(1)).findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                eq(1L), eq(10L), eq(Long.MAX_VALUE), any());
         verify(cachedCatalogBookClient, times(1)).getPropertyRoomTypes(REF_PROP_CAT_ID, lang);
 
         assertEquals(expectedProperty, properties.get(0));
@@ -578,17 +788,22 @@ class PropertyViewServiceTest {
         PropertyEntity propertyEntity = createPropertyEntity(createUserPropertyEntity());
 
         when(cachedCatalogBookClient.getAllCountries(null)).thenReturn(List.of(belarusCountry));
-        when(cachedCatalogBookClient.getPropertyCategory(any())).thenReturn(hotelPropertyCategory);
-        when(propertyRegRepository.findAllByOrderByIdDesc()).thenReturn(List.of(propertyEntity));
+        when(cachedCatalogBookClient.getPropertyTypes()).thenReturn(List.of(hotelPropertyType));
+        when(cachedCatalogBookClient.getPropertyCategories(HOTEL_PROPERTY_TYPE_ID)).thenReturn(List.of(hotelPropertyCategory));
+        when(propertyRegRepository.findAllByCountryIdAndUserPropertyEntityRefPropCatIdInAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                eq(BELARUS_COUNTRY_ID), eq(List.of(HOTEL_PROPERTY_CATEGORY_ID)), eq(Long.MAX_VALUE), any())).thenReturn(List.of(propertyEntity));
 
         List<PropertyView> properties = propertyViewService.queryViewProperties(DEF_LANG_ABBREVIATION,
-                "Belarus", CategoryTypes.valueOf(pCatType));
+                "Belarus", CategoryTypes.valueOf(pCatType), null, null, ViewValidator.NONE).orElseThrow().getProperties();
 
         assertEquals(pCount, properties.size());
 
         verify(cachedCatalogBookClient, times(1)).getAllCountries(null);
-        verify(cachedCatalogBookClient, times(1)).getPropertyCategory(any());
-        verify(propertyRegRepository, times(1)).findAllByOrderByIdDesc();
+        verify(cachedCatalogBookClient, times(1)).getPropertyCategories(HOTEL_PROPERTY_TYPE_ID);
+
+        /* unknown category types do not reach the database */
+        verify(propertyRegRepository, times(pCount))
+                .findAllByCountryIdAndUserPropertyEntityRefPropCatIdInAndIsActiveTrueAndIdLessThanOrderByIdDesc(any(), any(), any(), any());
     }
 
     @ParameterizedTest
@@ -602,18 +817,465 @@ class PropertyViewServiceTest {
 
         when(cachedCatalogBookClient.getAllCountries(null)).thenReturn(List.of(belarusCountry));
         when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, null)).thenReturn(List.of(minskCity));
-        when(cachedCatalogBookClient.getPropertyCategory(any())).thenReturn(hotelPropertyCategory);
-        when(propertyRegRepository.findAllByOrderByIdDesc()).thenReturn(List.of(propertyEntity));
+        when(cachedCatalogBookClient.getPropertyTypes()).thenReturn(List.of(hotelPropertyType));
+        when(cachedCatalogBookClient.getPropertyCategories(HOTEL_PROPERTY_TYPE_ID)).thenReturn(List.of(hotelPropertyCategory));
+        when(propertyRegRepository.findAllByCountryIdAndCityIdAndUserPropertyEntityRefPropCatIdInAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                eq(BELARUS_COUNTRY_ID), eq(MINSK_CITY_ID), eq(List.of(HOTEL_PROPERTY_CATEGORY_ID)), eq(Long.MAX_VALUE), any())).thenReturn(List.of(propertyEntity));
 
         List<PropertyView> properties = propertyViewService.queryViewProperties(DEF_LANG_ABBREVIATION,
-                "Belarus,Minsk", CategoryTypes.valueOf(pCatType));
+                "Belarus,Minsk", CategoryTypes.valueOf(pCatType), null, null, ViewValidator.NONE).orElseThrow().getProperties();
 
         assertEquals(pCount, properties.size());
 
         verify(cachedCatalogBookClient, times(1)).getAllCountries(null);
         verify(cachedCatalogBookClient, times(1)).getAllCities(BELARUS_COUNTRY_ID, null);
 
-        verify(cachedCatalogBookClient, times(1)).getPropertyCategory(any());
-        verify(propertyRegRepository, times(1)).findAllByOrderByIdDesc();
+        verify(cachedCatalogBookClient, times(1)).getPropertyCategories(HOTEL_PROPERTY_TYPE_ID);
+        verify(propertyRegRepository, times(pCount))
+                .findAllByCountryIdAndCityIdAndUserPropertyEntityRefPropCatIdInAndIsActiveTrueAndIdLessThanOrderByIdDesc(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testQueryIndexedProperties() {
+        PropertyEntity firstEntity = createPropertyEntity(1001L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+        PropertyEntity lastEntity = createPropertyEntity(1000L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+
+        when(propertySearchIndex.isReady()).thenReturn(true);
+        when(propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, MINSK_CITY_ID, List.of(HOTEL_PROPERTY_CATEGORY_ID),
+                Long.MAX_VALUE, DEFAULT_PAGE_SIZE)).thenReturn(new long[]{1001L, 1000L});
+        when(cachedCatalogBookClient.getAllCountries(null)).thenReturn(List.of(belarusCountry));
+        when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, null)).thenReturn(List.of(minskCity));
+        when(cachedCatalogBookClient.getPropertyTypes()).thenReturn(List.of(hotelPropertyType));
+        when(cachedCatalogBookClient.getPropertyCategories(HOTEL_PROPERTY_TYPE_ID)).thenReturn(List.of(hotelPropertyCategory));
+        when(propertyRegRepository.findAllByIdInAndIsActiveTrueOrderByIdDesc(List.of(1001L, 1000L)))
+                .thenReturn(List.of(firstEntity, lastEntity));
+
+        List<PropertyView> properties = propertyViewService.queryViewProperties(DEF_LANG_ABBREVIATION,
+                "Belarus,Minsk", CategoryTypes.HOTEL, null, null, ViewValidator.NONE).orElseThrow().getProperties();
+
+        assertEquals(2, properties.size());
+        assertEquals(1001L, properties.get(0).getPropId());
+        assertEquals(1000L, properties.get(1).getPropId());
+
+        /* the database only reads the found page */
+        verify(propertyRegRepository, times(1)).findAllByIdInAndIsActiveTrueOrderByIdDesc(any());
+        verify(propertyRegRepository, never())
+                .findAllByCountryIdAndCityIdAndUserPropertyEntityRefPropCatIdInAndIsActiveTrueAndIdLessThanOrderByIdDesc(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testQueryIndexedPropertiesInactive() {
+        PropertyEntity firstEntity = createPropertyEntity(1002L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+
+        when(propertySearchIndex.isReady()).thenReturn(true);
+        when(propertySearchIndex.findPropertyIds(BELARUS_COUNTRY_ID, null, null, Long.MAX_VALUE, 2))
+                .thenReturn(new long[]{1002L, 1001L});
+        when(cachedCatalogBookClient.getAllCountries(null)).thenReturn(List.of(belarusCountry));
+        when(propertyRegRepository.findAllByIdInAndIsActiveTrueOrderByIdDesc(List.of(1002L, 1001L)))
+                .thenReturn(List.of(firstEntity));
+
+        PropertyViewPage propViewPage = propertyViewService.queryViewProperties(DEF_LANG_ABBREVIATION,
+                "Belarus", null, null, 2, ViewValidator.NONE).orElseThrow();
+
+        /* the property deactivated on another instance shortens the page, the next page is after the last found id */
+        assertEquals(1, propViewPage.getProperties().size());
+        assertEquals(PropertyCursor.encode(1001L), propViewPage.getNextCursor());
+    }
+
+    @Test
+    void testQueryIndexedPropertiesNotFound() {
+        when(propertySearchIndex.isReady()).thenReturn(true);
+        when(propertySearchIndex.findPropertyIds(anyLong(), any(), any(), anyLong(), anyInt())).thenReturn(new long[0]);
+        when(cachedCatalogBookClient.getAllCountries(null)).thenReturn(List.of(belarusCountry));
+
+        PropertyViewPage propViewPage = propertyViewService.queryViewProperties(DEF_LANG_ABBREVIATION,
+                "Belarus", null, null, null, ViewValidator.NONE).orElseThrow();
+
+        assertTrue(propViewPage.getProperties().isEmpty());
+        assertNull(propViewPage.getNextCursor());
+
+        verify(propertySearchIndex, times(1)).findPropertyIds(BELARUS_COUNTRY_ID, null, null, Long.MAX_VALUE, DEFAULT_PAGE_SIZE);
+        verifyNoInteractions(propertyRegRepository);
+    }
+
+    @Test
+    void testSearchProperties() {
+        PropertyEntity firstEntity = createPropertyEntity(1000L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+        PropertyEntity secondEntity = createPropertyEntity(1001L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+
+        when(propertyRegRepository.searchActiveProperties(eq("sea view"), isNull(), isNull(),
+                eq(Float.MAX_VALUE), eq(Long.MAX_VALUE), eq(2)))
+                .thenReturn(List.of(createSearchHit(1000L, 0.9f), createSearchHit(1001L, 0.5f)));
+        when(propertyRegRepository.searchActiveProperties(eq("sea view"), isNull(), isNull(),
+                eq(0.5f), eq(1001L), eq(2)))
+                .thenReturn(List.of());
+        when(propertyRegRepository.findAllByIdInAndIsActiveTrueOrderByIdDesc(List.of(1000L, 1001L)))
+                .thenReturn(List.of(secondEntity, firstEntity));
+
+        PropertyViewPage firstPage = propertyViewService.searchViewProperties(DEF_LANG_ABBREVIATION,
+                " sea view ", null, null, null, 2, ViewValidator.NONE).orElseThrow();
+
+        /* the rank order, not the read order */
+        assertEquals(2, firstPage.getProperties().size());
+        assertEquals(1000L, firstPage.getProperties().get(0).getPropId());
+        assertEquals(1001L, firstPage.getProperties().get(1).getPropId());
+        assertNotNull(firstPage.getNextCursor());
+
+        PropertyViewPage lastPage = propertyViewService.searchViewProperties(DEF_LANG_ABBREVIATION,
+                "sea view", null, null, firstPage.getNextCursor(), 2, ViewValidator.NONE).orElseThrow();
+
+        assertTrue(lastPage.getProperties().isEmpty());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    void testSearchPropertiesByAddress() {
+        when(cachedCatalogBookClient.getAllCountries(null)).thenReturn(List.of(belarusCountry));
+        when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, null)).thenReturn(List.of(minskCity));
+        when(cachedCatalogBookClient.getPropertyTypes()).thenReturn(List.of(hotelPropertyType));
+        when(cachedCatalogBookClient.getPropertyCategories(HOTEL_PROPERTY_TYPE_ID)).thenReturn(List.of(hotelPropertyCategory));
+
+        PropertyViewPage propViewPage = propertyViewService.searchViewProperties(DEF_LANG_ABBREVIATION,
+                "pool", "Belarus,Minsk", CategoryTypes.HOTEL, null, null, ViewValidator.NONE).orElseThrow();
+
+        assertTrue(propViewPage.getProperties().isEmpty());
+        assertNull(propViewPage.getNextCursor());
+
+        verify(propertyRegRepository, times(1)).searchActivePropertiesByCategories("pool", BELARUS_COUNTRY_ID,
+                MINSK_CITY_ID, List.of(HOTEL_PROPERTY_CATEGORY_ID), Float.MAX_VALUE, Long.MAX_VALUE, DEFAULT_PAGE_SIZE);
+        verify(propertyRegRepository, never()).searchActiveProperties(any(), any(), any(), any(), any(), anyInt());
+        verify(propertyRegRepository, never()).findAllByIdInAndIsActiveTrueOrderByIdDesc(any());
+    }
+
+    @Test
+    void testSearchPropertiesUnknownAddress() {
+        when(cachedCatalogBookClient.getAllCountries(null)).thenReturn(List.of(belarusCountry));
+
+        PropertyViewPage propViewPage = propertyViewService.searchViewProperties(DEF_LANG_ABBREVIATION,
+                "pool", "Atlantis", null, null, null, ViewValidator.NONE).orElseThrow();
+
+        assertTrue(propViewPage.getProperties().isEmpty());
+        verifyNoInteractions(propertyRegRepository);
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"   "})
+    void testSearchInvalidQuery(String q) {
+        assertThrows(PropertyRegException.class, () ->
+                propertyViewService.searchViewProperties(DEF_LANG_ABBREVIATION, q, null, null, null, null, ViewValidator.NONE).orElseThrow());
+
+        verifyNoInteractions(propertyRegRepository);
+    }
+
+    @Test
+    void testSearchTooLongQuery() {
+        assertThrows(PropertyRegException.class, () ->
+                propertyViewService.searchViewProperties(DEF_LANG_ABBREVIATION, "a".repeat(201), null, null, null, null, ViewValidator.NONE).orElseThrow());
+
+        verifyNoInteractions(propertyRegRepository);
+    }
+
+    @Test
+    void testCachedQueryPage() {
+        PropertyEntity propEntity = createPropertyEntity(1001L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+
+        when(cachedCatalogBookClient.getAllCountries(null)).thenReturn(List.of(belarusCountry));
+        when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, null)).thenReturn(List.of(minskCity));
+        when(propertyRegRepository.findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                eq(BELARUS_COUNTRY_ID), eq(MINSK_CITY_ID), eq(Long.MAX_VALUE), any())).thenReturn(List.of(propEntity));
+        when(propertyRegRepository.findAllByIdInAndIsActiveTrueOrderByIdDesc(List.of(1001L))).thenReturn(List.of(propEntity));
+
+        propertyViewService.queryViewProperties(DEF_LANG_ABBREVIATION, "Belarus,Minsk", null, null, null, ViewValidator.NONE).orElseThrow();
+
+        /* the same normalized address is not resolved and filtered again, the page is read by primary key */
+        List<PropertyView> properties = propertyViewService.queryViewProperties(DEF_LANG_ABBREVIATION,
+                " BELARUS , minsk.", null, null, null, ViewValidator.NONE).orElseThrow().getProperties();
+
+        assertEquals(1, properties.size());
+        assertEquals(1001L, properties.get(0).getPropId());
+
+        verify(cachedCatalogBookClient, times(1)).getAllCountries(null);
+        verify(cachedCatalogBookClient, times(1)).getAllCities(BELARUS_COUNTRY_ID, null);
+        verify(propertyRegRepository, times(1)).findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                any(), any(), any(), any());
+        verify(propertyRegRepository, times(1)).findAllByIdInAndIsActiveTrueOrderByIdDesc(List.of(1001L));
+
+        /* another page of the address is a different query */
+        propertyViewService.queryViewProperties(DEF_LANG_ABBREVIATION, "Belarus,Minsk", null, null, 5, ViewValidator.NONE).orElseThrow();
+
+        verify(propertyRegRepository, times(2)).findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                any(), any(), any(), any());
+    }
+
+    @Test
+    void testCachedQueryPageDeactivated() {
+        PropertyEntity firstEntity = createPropertyEntity(1002L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+        PropertyEntity deactivatedEntity = createPropertyEntity(1001L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+        PropertyEntity lastEntity = createPropertyEntity(1000L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+
+        when(cachedCatalogBookClient.getAllCountries(null)).thenReturn(List.of(belarusCountry));
+        when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, null)).thenReturn(List.of(minskCity));
+        when(propertyRegRepository.findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                eq(BELARUS_COUNTRY_ID), eq(MINSK_CITY_ID), eq(Long.MAX_VALUE), any()))
+                .thenReturn(List.of(firstEntity, deactivatedEntity, lastEntity));
+
+        PropertyViewPage filledPage = propertyViewService.queryViewProperties(DEF_LANG_ABBREVIATION,
+                "Belarus,Minsk", null, null, 3, ViewValidator.NONE).orElseThrow();
+
+        assertNotNull(filledPage.getNextCursor());
+
+        /* the property is deactivated on another instance, this cache is not evicted */
+        when(propertyRegRepository.findAllByIdInAndIsActiveTrueOrderByIdDesc(List.of(1002L, 1001L, 1000L)))
+                .thenReturn(List.of(firstEntity, lastEntity));
+
+        PropertyViewPage cachedPage = propertyViewService.queryViewProperties(DEF_LANG_ABBREVIATION,
+                "Belarus,Minsk", null, null, 3, ViewValidator.NONE).orElseThrow();
+
+        /* the shorter page is not the last one */
+        assertEquals(2, cachedPage.getProperties().size());
+        assertEquals(1002L, cachedPage.getProperties().get(0).getPropId());
+        assertEquals(1000L, cachedPage.getProperties().get(1).getPropId());
+        assertEquals(filledPage.getNextCursor(), cachedPage.getNextCursor());
+
+        verify(propertyRegRepository, times(1)).findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                any(), any(), any(), any());
+    }
+
+    @Test
+    void testCachedUnknownAddress() {
+        when(cachedCatalogBookClient.getAllCountries(any())).thenReturn(List.of(belarusCountry));
+
+        PropertyViewPage propViewPage = propertyViewService.queryViewProperties(DEF_LANG_ABBREVIATION,
+                "Belarys", null, null, null, ViewValidator.NONE).orElseThrow();
+        propertyViewService.queryViewProperties(DEF_LANG_ABBREVIATION, "belarys", null, null, null, ViewValidator.NONE).orElseThrow();
+
+        assertTrue(propViewPage.getProperties().isEmpty());
+        assertNull(propViewPage.getNextCursor());
+
+        /* the typo is resolved once (the request and the default language) */
+        verify(cachedCatalogBookClient, times(2)).getAllCountries(any());
+        verifyNoInteractions(propertyRegRepository);
+    }
+
+    @Test
+    void testQueryLocalizedAddress() {
+        when(cachedCatalogBookClient.getAllCountries("be")).thenReturn(List.of(createCountry(BELARUS_COUNTRY_ID, "Беларусь")));
+        when(cachedCatalogBookClient.getAllCountries(null)).thenReturn(List.of(belarusCountry));
+        when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, "be")).thenReturn(List.of(createCity(MINSK_CITY_ID, "Мінск")));
+        when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, null)).thenReturn(List.of(minskCity));
+
+        /* the request language, the default language and the accent folding */
+        propertyViewService.queryViewProperties("be", "беларусь,Мінск", null, null, null, ViewValidator.NONE).orElseThrow();
+        propertyViewService.queryViewProperties("be", "Belarus,Mínsk.", null, null, null, ViewValidator.NONE).orElseThrow();
+
+        verify(propertyRegRepository, times(2)).findAllByCountryIdAndCityIdAndIsActiveTrueAndIdLessThanOrderByIdDesc(
+                eq(BELARUS_COUNTRY_ID), eq(MINSK_CITY_ID), eq(Long.MAX_VALUE), any());
+    }
+
+    @Test
+    void testSuggestCountries() {
+        when(cachedCatalogBookClient.getAllCountries("en")).thenReturn(List.of(
+                belarusCountry,
+                createCountry(2L, "Belgium"),
+                createCountry(3L, "Poland")));
+
+        assertEquals(List.of("Belarus", "Belgium"), propertyViewService.suggestAddresses("bel", "en"));
+        assertEquals(List.of("Belgium"), propertyViewService.suggestAddresses("BÉLG", "en"));
+        assertEquals(List.of(), propertyViewService.suggestAddresses("Ukr", "en"));
+    }
+
+    @Test
+    void testSuggestCities() {
+        when(cachedCatalogBookClient.getAllCountries(null)).thenReturn(List.of(belarusCountry));
+        when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, null)).thenReturn(List.of(
+                minskCity,
+                createCity(11L, "Mir"),
+                createCity(12L, "Brest")));
+
+        assertEquals(List.of("Belarus,Minsk", "Belarus,Mir"), propertyViewService.suggestAddresses("belarus, mi", null));
+        assertEquals(List.of(), propertyViewService.suggestAddresses("Atlantis,mi", null));
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"   "})
+    void testSuggestInvalidPrefix(String prefix) {
+        assertThrows(PropertyRegException.class, () -> propertyViewService.suggestAddresses(prefix, null));
+
+        verifyNoInteractions(cachedCatalogBookClient);
+    }
+
+    private static PropertyVersion createPropertyVersion(Long propId, Long version, Timestamp modifiedDate) {
+        return new PropertyVersion() {
+            @Override
+            public Long getId() {
+                return propId;
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+
+            @Override
+            public Timestamp getModifiedDate() {
+                return modifiedDate;
+            }
+        };
+    }
+
+    @Test
+    void testNotModifiedPropertyView() {
+        Timestamp modifiedDate = Timestamp.valueOf("2023-06-01 10:00:00");
+
+        when(propertyRegRepository.findVersionByIdAndIsActiveTrue(PROPERTY_ID))
+                .thenReturn(Optional.of(createPropertyVersion(PROPERTY_ID, 3L, modifiedDate)));
+
+        Optional<PropertyView> propertyView = propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION,
+                (versionTag, lastModified) -> {
+                    assertEquals(PROPERTY_ID + ".3", versionTag);
+                    assertEquals(modifiedDate.getTime(), lastModified);
+                    return true;
+                });
+
+        assertTrue(propertyView.isEmpty());
+
+        /* the validation of a cached version reads nothing */
+        propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION, (versionTag, lastModified) -> true);
+
+        verify(propertyRegRepository, times(1)).findVersionByIdAndIsActiveTrue(PROPERTY_ID);
+        verify(propertyRegRepository, never()).findByIdAndIsActiveTrue(any());
+    }
+
+    @Test
+    void testModifiedPropertyView() {
+        PropertyEntity propertyEntity = createPropertyEntity(createUserPropertyEntity());
+
+        when(propertyRegRepository.findVersionByIdAndIsActiveTrue(PROPERTY_ID))
+                .thenReturn(Optional.of(createPropertyVersion(PROPERTY_ID, 4L, Timestamp.valueOf("2023-06-01 10:00:00"))));
+        when(propertyRegRepository.findByIdAndIsActiveTrue(PROPERTY_ID)).thenReturn(Optional.of(propertyEntity));
+
+        Optional<PropertyView> propertyView = propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION,
+                (versionTag, lastModified) -> false);
+
+        assertTrue(propertyView.isPresent());
+        assertEquals(PROPERTY_ID, propertyView.get().getPropId());
+    }
+
+    @Test
+    void testNotModifiedPropertyViewAbsent() {
+        assertThrows(PropertyRegException.class, () ->
+                propertyViewService.getViewProperty(PROPERTY_ID, DEF_LANG_ABBREVIATION, (versionTag, lastModified) -> true));
+    }
+
+    @Test
+    void testNotModifiedPropertyListPage() {
+        PropertyEntity firstEntity = createPropertyEntity(1002L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+        PropertyEntity secondEntity = createPropertyEntity(1001L, BELARUS_COUNTRY_ID, MINSK_CITY_ID, createUserPropertyEntity());
+
+        when(propertyRegRepository.findAllByIsActiveTrueAndIdLessThanOrderByIdDesc(eq(Long.MAX_VALUE), any()))
+                .thenReturn(List.of(firstEntity, secondEntity));
+
+        List<String> versionTags = new ArrayList<>();
+
+        Optional<PropertyViewPage> propViewPage = propertyViewService.getViewProperties(DEF_LANG_ABBREVIATION, null, 2,
+                (versionTag, lastModified) -> {
+                    versionTags.add(versionTag);
+                    return true;
+                });
+
+        assertTrue(propViewPage.isEmpty());
+
+        /* an edit of any property of the page changes the page tag */
+        secondEntity.setVersion(1L);
+
+        propViewPage = propertyViewService.getViewProperties(DEF_LANG_ABBREVIATION, null, 2,
+                (versionTag, lastModified) -> {
+                    versionTags.add(versionTag);
+                    return false;
+                });
+
+        assertTrue(propViewPage.isPresent());
+        assertEquals(2, propViewPage.get().getProperties().size());
+        assertNotEquals(versionTags.get(0), versionTags.get(1));
+
+        /* the not modified page is not rendered */
+        verify(cachedCatalogBookClient, times(2)).getAllCountries(any());
+    }
+
+    @Test
+    void testViewFacets() {
+        PropertyCategory hostelPropertyCategory = new PropertyCategory();
+        hostelPropertyCategory.setId(1898L);
+        hostelPropertyCategory.setCategoryType(CategoryTypes.HOSTEL);
+
+        PropertyCategory miniHotelPropertyCategory = new PropertyCategory();
+        miniHotelPropertyCategory.setId(1899L);
+        miniHotelPropertyCategory.setCategoryType(CategoryTypes.HOTEL);
+
+        when(propertySearchIndex.isReady()).thenReturn(true);
+        when(propertySearchIndex.getCountryCounts()).thenReturn(Map.of(BELARUS_COUNTRY_ID, 3, 2L, 5));
+        when(propertySearchIndex.getCityCounts(BELARUS_COUNTRY_ID)).thenReturn(Map.of(MINSK_CITY_ID, 3));
+        when(propertySearchIndex.getCategoryCounts()).thenReturn(Map.of(
+                HOTEL_PROPERTY_CATEGORY_ID, 4, 1898L, 2, 1899L, 1, 9999L, 1));
+        when(cachedCatalogBookClient.getAllCountries(DEF_LANG_ABBREVIATION))
+                .thenReturn(List.of(belarusCountry, createCountry(2L, "Poland")));
+        when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, DEF_LANG_ABBREVIATION)).thenReturn(List.of(minskCity));
+        when(cachedCatalogBookClient.getPropertyTypes()).thenReturn(List.of(hotelPropertyType));
+        when(cachedCatalogBookClient.getPropertyCategories(HOTEL_PROPERTY_TYPE_ID))
+                .thenReturn(List.of(hotelPropertyCategory, hostelPropertyCategory, miniHotelPropertyCategory));
+
+        PropertyFacets facets = propertyViewService.getViewFacets(DEF_LANG_ABBREVIATION, "belarus,Minsk");
+
+        /* the biggest count goes first */
+        assertEquals(2, facets.getCountries().size());
+        assertEquals("Poland", facets.getCountries().get(0).getName());
+        assertEquals(5, facets.getCountries().get(0).getCount());
+        assertEquals("Belarus", facets.getCountries().get(1).getName());
+
+        assertEquals(1, facets.getCities().size());
+        assertEquals("Minsk", facets.getCities().get(0).getName());
+        assertEquals(3, facets.getCities().get(0).getCount());
+
+        /* categories of a type are summed up, unknown categories are skipped */
+        assertEquals(Map.of(CategoryTypes.HOTEL, 5, CategoryTypes.HOSTEL, 2), facets.getCategories());
+
+        verifyNoInteractions(propertyRegRepository);
+    }
+
+    @Test
+    void testViewFacetsIndexNotReady() {
+        when(propertyRegRepository.countActiveByCountryId()).thenReturn(List.of(createKeyCount(BELARUS_COUNTRY_ID, 3L)));
+        when(propertyRegRepository.countActiveByCityId(BELARUS_COUNTRY_ID))
+                .thenReturn(List.of(createKeyCount(MINSK_CITY_ID, 2L)));
+        when(propertyRegRepository.countActiveByRefPropCatId())
+                .thenReturn(List.of(createKeyCount(HOTEL_PROPERTY_CATEGORY_ID, 3L)));
+        when(cachedCatalogBookClient.getAllCountries(DEF_LANG_ABBREVIATION)).thenReturn(List.of(belarusCountry));
+        when(cachedCatalogBookClient.getAllCities(BELARUS_COUNTRY_ID, DEF_LANG_ABBREVIATION)).thenReturn(List.of(minskCity));
+        when(cachedCatalogBookClient.getPropertyTypes()).thenReturn(List.of(hotelPropertyType));
+        when(cachedCatalogBookClient.getPropertyCategories(HOTEL_PROPERTY_TYPE_ID)).thenReturn(List.of(hotelPropertyCategory));
+
+        PropertyFacets facets = propertyViewService.getViewFacets(DEF_LANG_ABBREVIATION, "Belarus");
+
+        /* the counts of the database, not the empty counts of the index being built */
+        assertEquals(1, facets.getCountries().size());
+        assertEquals(3, facets.getCountries().get(0).getCount());
+        assertEquals(1, facets.getCities().size());
+        assertEquals(2, facets.getCities().get(0).getCount());
+        assertEquals(Map.of(CategoryTypes.HOTEL, 3), facets.getCategories());
+
+        verify(propertySearchIndex, never()).getCountryCounts();
+        verify(propertySearchIndex, never()).getCityCounts(anyLong());
+        verify(propertySearchIndex, never()).getCategoryCounts();
+    }
+
+    @Test
+    void testViewFacetsWithoutCountry() {
+        assertNull(propertyViewService.getViewFacets(DEF_LANG_ABBREVIATION, null).getCities());
+
+        when(cachedCatalogBookClient.getAllCountries(any())).thenReturn(List.of(belarusCountry));
+
+        assertTrue(propertyViewService.getViewFacets(DEF_LANG_ABBREVIATION, "Atlantis").getCities().isEmpty());
     }
 }